@@ -16,41 +16,69 @@
  * - Exploring, with chopping trees and using/losing the raft allowed
  * - Exploring, with all actions allowed (including using dynamite)
  *
- * Searching for a "path" to a goal (a tile with a treasure or an item) is done using A* search. The heuristic uses
- * the Manhattan distance from the current position to the target tile. Exploring is done using the same implementation
- * as the A* search, but with no targets. This means the heuristic gets set to 0, making the search the same as
- * uniform cost search. The exploration search terminates when a tile with unseen tiles around it is found. In other words, it finds
- * the "closest" unexplored tile. The implementation uses a hashset (for quick lookup) to keep track of closed states. The open
- * states are stored in a priority queue, that sorts the states by their fCost (that is, the path cost + heuristic).
- * Because it is very slow to find a particular state in the priority queue, the open states are also listed in a
- * hashmap. That way it is quick to check whether or not a newly expanded state is a cheaper path to a known state,
- * and the costly iteration through the priority queue only needs to be done when it is known to be necessary to update
- * a state.
+ * The plan for a goal is followed without searching again until it is done, unless a new view of the map changes
+ * something the rest of it depends on, or shows a treasure or item worth more than its goal (see PlanDependencies).
+ * When a new plan is needed, the goals are searched for at the same time on a pool of threads, and the plan for the
+ * first goal in the list that has one is used (see PlanPortfolio).
+ *
+ * Searching for a "path" to a goal (a tile with a treasure or an item) is done using A* search. The searches use macro
+ * actions, where each step turns the agent to face a direction and then performs an action. Turning on the spot is
+ * then never a state of its own, and the direction of the agent can be left out of the state, which cuts the number
+ * of expanded states by about three quarters. The heuristic is a distance field, found once for each search by
+ * searching backwards from all the targets over the known map. It goes around the obstacles the agent isn't allowed to
+ * remove, and counts the lowest cost of removing the others. A state that has removed obstacles itself takes the lower
+ * of the field and a bound on the paths back through them, so the heuristic never overestimates the cost of a path,
+ * but is much closer to it than the Manhattan distance. The searches for the treasure and items are anytime searches,
+ * that find a quick plan first and then improve it for as long as there is time (see AnytimeSearch).
+ *
+ * Exploring is done using the same implementation as the A* search, but with no targets. This means the heuristic
+ * gets set to 0, making the search the same as uniform cost search, which stops at the "closest" tile with unseen
+ * tiles around it. The agent also keeps a frontier flood (see FrontierFlood), that holds the distance from every tile
+ * to the nearest unexplored one for each search mode. An exploration tier that can't reach any unexplored tile gives up
+ * without searching. The SAFE tier then searches with uniform cost search and jump point search, which skips over
+ * straight runs of open land or water, and the others search with A* using the distances as the heuristic.
+ *
+ * Every state is identified by a key packed into a long (the position, direction and inventory, plus a fingerprint of
+ * the changed tiles), and the closed states are kept as keys in a primitive open addressing hash set, so expanded
+ * states don't need to be kept in memory (the anytime searches do keep them, to tell when a cheaper path to one is
+ * found). The open states are stored in an open list, that sorts the states by their fCost (that is, the path cost +
+ * heuristic). The open states are also listed in a primitive hash map by their key, so it is quick to check whether
+ * or not a newly expanded state is a cheaper path to a known state. The open list implementations (an indexed binary
+ * heap, and a bucket queue that uses the fact that all costs are small integers) keep track of where each state is
+ * stored, so a state can be replaced by a cheaper path to it without iterating through the whole open list.
  *
  * The state of the game is described in the State class. This class is extended by both the Agent and SearchState
  * classes, as they both need the same information about the state of the game. The agent stores the actual state of
  * the game, whilst the SearchState objects store the state that will occur as a result of a specific sequence of
  * actions. The SearchState class also keeps track of parameters important for searching, such as the heuristics and
  * costs, and the search mode. The search mode limits what actions the agent is allowed to do, to avoid making rash
- * or uninformed decisions. The state also stores the world map. This is implemented as a matrix of
- * Tile objects, where each object represents one square of the map. The map is 164 by 164, in order to be able to fit
- * a 80x80 map with a random start position. This large size means that most of the array will never be utilized, and as
- * such it is extremely inefficient to compare two maps to see if they are different. So keeping track of changes in the
- * map between states is done by storing which tiles have been changed in linked lists, one for each of the three ways to
- * remove tiles.
+ * or uninformed decisions. The state also stores the world map. This is implemented as a flat byte array, where each
+ * byte holds the type and item of one square of the map (or zero if it hasn't been seen), so looking up the terrain
+ * never touches any objects. The map is 164 by 164, in order to be able to fit a 80x80 map with a random start
+ * position. This large size means that most of the array will never be utilized, and as such it is extremely
+ * inefficient to compare two maps to see if they are different. So keeping track of changes in the map between states
+ * is done by storing which tiles have been changed in immutable sets, one for each of the three ways to remove tiles.
+ * For the same reason the search states never copy the map. They all share the agent's map, and keep the few squares
+ * they have changed (by removing an obstacle or picking up an item) in a small copy-on-write overlay, that is checked
+ * before the shared map whenever a square is looked up. The known items, treasures and trees are kept in immutable
+ * sets indexed by their square as well, so a search state shares them with the state it was expanded from.
  *
- * When testing locally, the agent is able to solve all the provided maps (s0 - s9), except s7 and s9. For the s7 map
- * the problem is the size of the map, combined with the many trees and wall locked treasure. When the agent tries to
- * plan a path to the treasure, it will explore all options before giving up. After chopping a tree the agent can go
- * back to a previous position, and still be considered to be in a new state, because a tile has been removed. This
- * means that every time the agent chops a tree, it has to search through the entire map again, before it can be sure it
- * has tried all paths to reach the treasure. On a large map with lots of trees, like s7, this is not possible before
- * running out of memory. The s9 map the agent is able to solve, but it takes around three minutes, compared to all
- * other solved maps being done in less than five seconds. This is due to a combination of 3 things: The same problem
- * as in s7, with removing tiles allowing the agent to search through states it has already been in. And second that the
- * heuristic is not very helpful when the target is the treasure, but the agent has to collect dynamite first. Third the
- * fact that using dynamite has a high cost, which leads the agent to spend a lot of time exploring other options,
- * before allowing itself to use the dynamite.
+ * Searching straight through the state space gets slow on large maps, as every tree chopped or wall blown up lets the
+ * search go through the whole map again in a new state. So the paths to the treasure, to items and home, and the
+ * explorations that may change the map, are planned in two levels by the RegionPlanner class. The known map is split
+ * into regions of connected land or water, with every tree, door and wall as a region of its own, and a cheap search
+ * over the regions decides which obstacles to remove and which items to pick up on the way. Only the part of the path
+ * up to the first obstacle is then found with the A* search, which is kept inside the regions on the route. The route
+ * must leave the agent able to get back to the start, and may only use dynamite on an item if it gains something.
+ *
+ * When testing locally, the agent is able to solve all the provided maps (s0 - s9). Before the region level planning
+ * the s7 map, with its many trees and wall locked treasure, ran out of memory while searching for a path to the
+ * treasure, and s9 took around three minutes. Both are now solved, though s7 still takes by far the longest.
+ *
+ * No move may hold the game up for long either way. The searches of one move share a time budget, and a search that
+ * runs out of its slice of it returns the path to the state it found closest to its targets, so the agent still makes
+ * progress and plans again from there. A search that has no such path gives up, and the plan for the next goal is
+ * used instead.
  */
 
 import java.io.*;
@@ -60,13 +88,35 @@ import java.util.LinkedList;
 public class Agent extends State {
 
     private boolean logPrint = false;
+
+    // The most open states a search may keep before it starts forgetting the worst ones (see SearchOptions)
+    private final static int MAX_OPEN_STATES = 200000;
+
+    // The first weight of the anytime searches for the treasure and items
+    private final static double ANYTIME_WEIGHT = 2;
+
+    // How long the searches of one move may take together, in nanoseconds (see PlanPortfolio)
+    private final static long MOVE_BUDGET = 5_000_000_000L;
     private LinkedList<Character> plan = new LinkedList<>();
+    private PlanDependencies planDependencies = null;
+
+    // The frontier of the map and the distances to it, and the cells of the map that have changed since it was updated
+    private FrontierFlood frontierFlood = null;
+    private int[] changedCells = new int[64];
+    private int numChangedCells = 0;
+
+    // The routes between the start, treasures and items. The ones the changed cells may affect are dropped
+    private final RouteTable routeTable = new RouteTable(this, SearchMode.FREE);
+
+    // Which parts of the map the agent may get between in each search mode, so searches that can't succeed are skipped
+    final Connectivity connectivity = new Connectivity(this);
 
     /* Default constructor. Initializes position of the agent to the center of the map */
     Agent() {
         super();
         posX = start;
         posY = start;
+        resetHash();
     }
 
     /* Gets an action form a human player using the keyboard, and returns it if is is valid */
@@ -99,8 +149,16 @@ public class Agent extends State {
     char get_action(char view[][]) {
         char action;
 
+        int firstChangedCell = numChangedCells;
         updateMap(view);
 
+        // Give up the plan if the new view changed something it depends on, or a goal of a higher priority appeared
+        if (!plan.isEmpty()
+                && !planDependencies.isValid(this, plan.peekFirst(), changedCells, firstChangedCell, numChangedCells)) {
+            if (logPrint) System.out.println("Plan is no longer valid, replanning");
+            plan.clear();
+        }
+
         // If there already exists a plan, return the next step in that plan
         if (!plan.isEmpty()) {
             if (logPrint) System.out.println("Preexisting plan, executing next step: " + plan.peekFirst());
@@ -115,95 +173,66 @@ public class Agent extends State {
             printState();
         }
 
+        /* Plan for every goal the agent may have at once (see PlanPortfolio), and follow the plan for the goal of the
+         * highest priority that has one. The frontier flood is brought up to date first, as the searches share it */
+        FrontierFlood flood = frontierFlood();
+        PlanPortfolio portfolio = new PlanPortfolio(this::searchOptions, MOVE_BUDGET, logPrint);
+
         // If the agent has picked up a treasure, plan a route back to the start to win the game
         if (hasTreasure) {
             LinkedList<Tile> home = new LinkedList<>();
             home.add(getTile(start, start));
-
-            try {
-                if (logPrint) System.out.println("Have treasure, planning path home...");
-                plan = Search.AStar(this, home, SearchMode.FREE);
-                if (logPrint) System.out.println("Found path home, executing: " + plan.peekFirst());
-
-                action = plan.removeFirst();
-                updateState(action);
-                return action;
-            } catch (NoPathFoundException e) {
-                if (logPrint) System.out.println("Could not find path home: " + e.getMessage());
-            }
+            portfolio.add(Goal.HOME, options -> RegionPlanner.findPath(this, home, SearchMode.FREE, options));
         }
 
         /* Search for places to explore, that don't require actions that can't be undone.
          * The agent will not chop trees, go between land and water, or blow up tiles. Unlocking doors is allowed
          */
-        try {
-            if (logPrint) System.out.println("Planning safe exploration...");
-            plan = Search.UCS(this, SearchMode.SAFE);
-            if (logPrint) System.out.println("Found safe exploration path, executing: " + plan.peekFirst());
-
-            action = plan.removeFirst();
-            updateState(action);
-            return action;
-        } catch (NoPathFoundException e) {
-            if (logPrint) System.out.println("Could not find safe exploration: " + e.getMessage());
-        }
-
-        /* If the agent knows the location of treasure, it tries to plan a path to it */
-        if (!knownTreasures.isEmpty()) {
-            try {
-                if (logPrint) System.out.println("Know where treasure is, planning path to it...");
-                plan = Search.AStar(this, knownTreasures, SearchMode.FREE);
-                if (logPrint) System.out.println("Found path to treasure, executing: " + plan.peekFirst());
-
-                action = plan.removeFirst();
-                updateState(action);
-                return action;
-            } catch (NoPathFoundException e) {
-                if (logPrint) System.out.println("Could not find path to treasure: " + e.getMessage());
+        portfolio.add(Goal.SAFE_EXPLORATION, options -> flood.explore(this, SearchMode.SAFE, options));
+
+        /* If the agent knows the location of treasure, it plans the next leg of the cheapest tour to a treasure and
+         * back to the start through the items it knows about (see TourPlanner). The leg goes to the treasure, or to the
+         * item for a tool the tour needs first. A leg that only walks over land and through doors is taken from the
+         * route table as it is, and the others are searched for. If there is no tour, there is no way to win yet */
+        Tour tour = knownTreasures.isEmpty() ? null : TourPlanner.plan(this, routeTable);
+        if (logPrint && !knownTreasures.isEmpty()) System.out.println("Tour to the treasure: " + tour);
+        if (tour != null) {
+            LinkedList<Tile> leg = new LinkedList<>();
+            leg.add(tour.points.getFirst());
+            LinkedList<Character> walk = routeTable.walk(this, leg.getFirst());
+            if (walk != null) {
+                portfolio.add(Goal.TREASURE, options -> new LinkedList<>(walk));
+            } else if (leg.getFirst().getItem() == '$') {
+                portfolio.add(Goal.TREASURE, options -> RegionPlanner.findPath(this, leg, SearchMode.FREE,
+                        anytime(options)));
+            } else {
+                portfolio.add(Goal.TREASURE, options -> RegionPlanner.collectItem(this, leg, SearchMode.FREE,
+                        anytime(options)));
             }
-
         }
 
         /* If the agent knows the location of any items (keys, dynamite or axes), it tries to plan a path to one */
         if (!knownItems.isEmpty()) {
-            try {
-                if (logPrint) System.out.println("Know where item(s) are, planning path to one...");
-                plan = Search.AStar(this, knownItems, SearchMode.FREE);
-                if (logPrint) System.out.println("Found path to item, executing: " + plan.peekFirst());
-
-                action = plan.removeFirst();
-                updateState(action);
-                return action;
-            } catch (NoPathFoundException e) {
-                if (logPrint) System.out.println("Could not find path to item: " + e.getMessage());
-            }
+            portfolio.add(Goal.ITEM, options -> RegionPlanner.collectItem(this, SearchMode.FREE, anytime(options)));
         }
 
         /* If none of the previous searches produced viable plans, more exploration is probably necessary.
          * This exploration will allow chopping trees and using the raft, in order to reach new places */
-        try {
-            if (logPrint) System.out.println("Planning moderate exploration...");
-            plan = Search.UCS(this, SearchMode.MODERATE);
-            if (logPrint) System.out.println("Found moderate exploration path, executing: " + plan.peekFirst());
-
-            action = plan.removeFirst();
-            updateState(action);
-            return action;
-        } catch (NoPathFoundException e) {
-            if (logPrint) System.out.println("Could not find moderate exploration: " + e.getMessage());
-        }
+        portfolio.add(Goal.MODERATE_EXPLORATION,
+                options -> RegionPlanner.explore(this, SearchMode.MODERATE, options, flood));
 
         /* If all else fails, the agent is allowed to use all methods in order to explore, including using dynamite */
+        portfolio.add(Goal.EXPLORATION, options -> RegionPlanner.explore(this, SearchMode.FREE, options, flood));
+
         try {
-            if (logPrint) System.out.println("Planning exploration...");
-            plan = Search.UCS(this, SearchMode.FREE);
-            if (logPrint) System.out.println("Found exploration path, executing: " + plan.peekFirst());
+            plan = portfolio.run();
+            planDependencies = new PlanDependencies(this, plan, portfolio.getGoal());
 
             action = plan.removeFirst();
             updateState(action);
             return action;
         } catch (NoPathFoundException e) {
-            if (logPrint) System.out.println("Could not find unmapped area: " + e.getMessage());
+            if (logPrint) System.out.println("Could not find any plan: " + e.getMessage());
         }
 
 
@@ -221,6 +250,62 @@ public class Agent extends State {
         return 0;
     }
 
+    /* Set a cell of the map, remembering the cells that change so the frontier flood can be updated, and keeping the
+     * connectivity index up to date */
+    @Override
+    void setCell(int x, int y, byte cell) {
+        if (getCell(x, y) == cell) {
+            return;
+        }
+        if (numChangedCells == changedCells.length) {
+            changedCells = java.util.Arrays.copyOf(changedCells, numChangedCells * 2);
+        }
+        changedCells[numChangedCells++] = y * mapSize + x;
+        super.setCell(x, y, cell);
+        connectivity.cellChanged(y * mapSize + x);
+    }
+
+    /* Get the frontier flood of the map as it is now. It is found once, and then updated with the cells that have
+     * changed since it was last used. The routes of the route table those cells may affect are dropped too */
+    private FrontierFlood frontierFlood() {
+        if (frontierFlood == null) {
+            frontierFlood = new FrontierFlood(this);
+        } else if (numChangedCells > 0) {
+            frontierFlood.update(changedCells, numChangedCells);
+            routeTable.mapChanged(changedCells, numChangedCells);
+        }
+        numChangedCells = 0;
+        return frontierFlood;
+    }
+
+    /* Create the options used for the agent's searches. The agent searches over macro actions, which expands far
+     * fewer states than searching over single actions. The plans can cost slightly more, as the direction of the
+     * agent is not part of the state, but they are still made of the single actions the game host accepts. The
+     * searches use a distance field around the obstacles, for the tools each state holds, as their heuristic. Jump
+     * points only apply to uniform cost search in SAFE mode, which the SAFE exploration uses (see FrontierFlood).
+     * States that another state found is at least as good as are discarded (see DominanceFilter). The number of open
+     * states is bounded, so a search that can't find a plan runs out of states to try rather than out of memory, and a
+     * search that runs out of time returns a plan towards its targets rather than nothing */
+    private SearchOptions searchOptions() {
+        SearchOptions options = new SearchOptions();
+        options.macroActions = true;
+        options.distanceField = true;
+        options.toolHeuristic = true;
+        options.jumpPoints = true;
+        options.maxOpenStates = MAX_OPEN_STATES;
+        options.partialPlan = true;
+        options.dominance = true;
+        return options;
+    }
+
+    /* Make the options of a search for the treasure or an item anytime ones (see AnytimeSearch). The search first finds
+     * a plan with the heuristic weighted by two, and then improves it until it is the cheapest or its slice of the
+     * move's time is up, so a hard search costs the agent a few extra moves rather than minutes */
+    private SearchOptions anytime(SearchOptions options) {
+        options.weight = ANYTIME_WEIGHT;
+        return options;
+    }
+
     /* Print the agents current view. Part of the provided class */
     private void print_view(char view[][]) {
         int i, j;
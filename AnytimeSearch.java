@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/* The AnytimeSearch class runs A* search as Anytime Repairing A* (ARA*). It first searches with the heuristic
+ * multiplied by a weight above one, which expands far fewer states but finds a plan that may cost more than the
+ * cheapest one. It then lowers the weight a step at a time, and searches again for as long as there is time, until the
+ * plan is known to be the cheapest.
+ *
+ * Each search goes on from the states of the one before, instead of starting over. The open states are kept and only
+ * sorted again by the new weight, and a state that has been expanded is only expanded again if a cheaper path to it is
+ * found. A cheaper path to a state that has already been expanded during the same search is put aside (the inconsistent
+ * states), and opened at the start of the next one. Every plan found is kept as a SearchResult, together with a bound
+ * on how much more it may cost than the cheapest plan.
+ *
+ * The heuristic never overestimates (see SearchState.setHeuristic), but it is not consistent: a state that removes an
+ * obstacle can have a much lower heuristic than the state before it. So the bound is not taken to be the weight, as
+ * ARA* does, but found from the lowest unweighted fCost of the states that are still open or inconsistent, which no
+ * cheaper plan can cost less than. Once the weight is one, the search goes on with the inconsistent states until the
+ * bound is one, so the last plan costs the same as the one a single A* search finds.
+ *
+ * Like the memory bounded A* search, the search forgets the worst half of its open states when it has more than
+ * SearchOptions.maxOpenStates, and opens the states they were expanded from again, so they are found again if
+ * needed. */
+class AnytimeSearch {
+
+    // How much the weight is lowered after each plan
+    private final static double WEIGHT_STEP = 0.5;
+
+    private final LinkedList<Tile> targets;
+    private final SearchOptions options;
+    private final SearchState root;
+
+    private OpenList open = new BucketQueue();
+    private LongObjectMap<SearchState> openH = new LongObjectMap<>();
+    private LongObjectMap<SearchState> inconsistent = new LongObjectMap<>();
+    private ArrayList<SearchState> inconsistentStates = new ArrayList<>();
+    private final LongObjectMap<SearchState> expanded = new LongObjectMap<>(); // The cheapest expanded path to each key
+    private LongHashSet closed = new LongHashSet(); // The keys expanded during the current search
+    private final DominanceFilter dominance;
+
+    private double weight;
+    private SearchState best = null;
+    private SearchState closest; // The state found with the lowest heuristic, see SearchOptions.partialPlan
+    private long numExpanded = 0;
+    private final ArrayList<SearchResult> solutions = new ArrayList<>();
+
+    /* Constructor that sets up a search from the agent's state to the targets, with the weight in the options */
+    AnytimeSearch(Agent agent, LinkedList<Tile> targets, SearchMode mode, SearchOptions options) {
+        this.targets = targets;
+        this.options = options;
+        this.weight = Math.max(options.weight, 1);
+        this.root = new SearchState(agent, targets, mode, options);
+        this.closest = root;
+        this.dominance = options.dominance ? new DominanceFilter() : null;
+    }
+
+    /* Search until the plan is the cheapest, or the deadline has passed, and return the best plan found */
+    SearchResult run() throws NoPathFoundException {
+        if (targets == null || targets.isEmpty()) {
+            throw new NoPathFoundException("No targets provided");
+        }
+        if (root.getHeuristic() == DistanceField.UNREACHABLE) {
+            throw new NoPathFoundException("No way to any of the targets");
+        }
+        open.add(root);
+        openH.put(root.getKey(), root);
+
+        while (improvePlan()) {
+            if (best == null) {
+                throw new NoPathFoundException("Exhausted all possibilities");
+            }
+            SearchResult solution = new SearchResult(best.getPathHere(), best.getCost(), bound());
+            solutions.add(solution);
+            if (solution.bound == 1) {
+                break; // The plan is known to be the cheapest
+            }
+
+            /* Lower the weight, and sort the open and inconsistent states by it for the next search. The costs backed
+             * up by forgetWorstStates were weighted by the old weight, so they are dropped rather than kept too high */
+            double lastWeight = weight;
+            weight = Math.max(weight - WEIGHT_STEP, 1);
+            ArrayList<SearchState> states = new ArrayList<>(open.size() + inconsistentStates.size());
+            while (!open.isEmpty()) {
+                states.add(open.poll());
+            }
+            for (SearchState state : inconsistentStates) {
+                if (inconsistent.get(state.getKey()) == state) {
+                    states.add(state);
+                }
+            }
+            open = new BucketQueue();
+            openH = new LongObjectMap<>();
+            inconsistent = new LongObjectMap<>();
+            inconsistentStates = new ArrayList<>();
+            closed = new LongHashSet();
+            for (SearchState state : states) {
+                state.setWeight(weight);
+                if (weight != lastWeight) {
+                    state.setBackedUpCost(0);
+                }
+                SearchState openState = openH.get(state.getKey());
+                if (openState == null) {
+                    open.add(state);
+                    openH.put(state.getKey(), state);
+                } else if (state.getCost() < openState.getCost()) {
+                    openH.put(state.getKey(), state);
+                    open.decreaseKey(openState, state);
+                }
+            }
+        }
+
+        // The search may have found a cheaper plan before it was stopped
+        if (best != null && (solutions.isEmpty() || best.getCost() < solutions.get(solutions.size() - 1).cost)) {
+            solutions.add(new SearchResult(best.getPathHere(), best.getCost(), bound()));
+        }
+        if (solutions.isEmpty()) {
+            if (options.cancelled != null && options.cancelled.get()) {
+                throw new NoPathFoundException("The search was cancelled");
+            }
+            return new SearchResult(Search.partialPlan(root, closest, options), Integer.MAX_VALUE,
+                    Double.POSITIVE_INFINITY); // Not a plan to a target, so nothing is known about its cost
+        }
+        return solutions.get(solutions.size() - 1);
+    }
+
+    /* Get every plan found, from the first to the best */
+    ArrayList<SearchResult> getSolutions() {
+        return solutions;
+    }
+
+    /* Get the number of states that were expanded by all the searches */
+    long getExpanded() {
+        return numExpanded;
+    }
+
+    /* Search with the current weight, until no open state can lead to a cheaper plan than the best one. Returns false
+     * if the search was stopped by the deadline or cancelled first */
+    private boolean improvePlan() {
+        while (!open.isEmpty()) {
+            if ((options.cancelled != null && options.cancelled.get())
+                    || (numExpanded > 0 && Search.pastDeadline(options))) {
+                return false; // The first state is always expanded, so there is a step to take when out of time
+            }
+
+            SearchState current = open.poll();
+            if (best != null && current.getFCost() >= best.getCost()) {
+                open.add(current); // Kept for the next search, with a lower weight
+                return true;
+            }
+            openH.remove(current.getKey());
+            closed.add(current.getKey());
+            expanded.put(current.getKey(), current);
+            numExpanded++;
+
+            if (Search.isGoal(current, targets, "AStar")) {
+                if (best == null || current.getCost() < best.getCost()) {
+                    best = current;
+                }
+                continue;
+            }
+
+            for (SearchState newState : current.expandState()) {
+                long key = newState.getKey();
+                if (newState.getHeuristic() == DistanceField.UNREACHABLE) {
+                    continue;
+                }
+
+                // Skip the state if it can't lead to a cheaper plan, or it has already been expanded as cheaply
+                if (best != null && newState.getCost() + newState.getHeuristic() >= best.getCost()) {
+                    continue;
+                }
+                SearchState expandedState = expanded.get(key);
+                if (expandedState != null && expandedState.getCost() <= newState.getCost()) {
+                    continue;
+                }
+                if (dominance != null && dominance.isDominated(newState)) {
+                    continue;
+                }
+
+                // A cheaper path to a state expanded during this search waits for the next search
+                if (closed.contains(key)) {
+                    SearchState inconsistentState = inconsistent.get(key);
+                    if (inconsistentState == null || newState.getCost() < inconsistentState.getCost()) {
+                        inconsistent.put(key, newState);
+                        inconsistentStates.add(newState);
+                    }
+                    continue;
+                }
+
+                SearchState openState = openH.get(key);
+                if (openState != null) {
+                    if (newState.getCost() < openState.getCost()) {
+                        openH.put(key, newState);
+                        open.decreaseKey(openState, newState);
+                    }
+                } else {
+                    open.add(newState);
+                    openH.put(key, newState);
+                }
+                if (newState.getHeuristic() < closest.getHeuristic() && Search.onlyMoved(root, newState)) {
+                    closest = newState;
+                }
+            }
+
+            if (options.maxOpenStates > 0 && open.size() > options.maxOpenStates) {
+                forgetWorstStates(options.maxOpenStates / 2);
+                if (dominance != null) {
+                    dominance.clear(); // The forgotten states must not stop the search from finding them again
+                }
+            }
+        }
+        return true;
+    }
+
+    /* Forget all but the given number of the best open states, to bound the memory used by the search. As in the memory
+     * bounded A* search, the fCost of the forgotten states is backed up to the nearest state they were expanded from,
+     * which is opened again. Any expanded state can be opened again, not only one expanded during the current search,
+     * as the expanded states would otherwise stop the forgotten ones from being found again. The first state is never
+     * forgotten, as there is nothing to back its cost up to */
+    private void forgetWorstStates(int keep) {
+        ArrayList<SearchState> states = new ArrayList<>(open.size());
+        while (!open.isEmpty()) {
+            states.add(open.poll());
+        }
+        for (int i = keep; i < states.size(); i++) {
+            openH.remove(states.get(i).getKey());
+        }
+
+        // None of the states are in the open list now, so their backed up costs can be changed
+        ArrayList<SearchState> reopened = new ArrayList<>();
+        for (int i = keep; i < states.size(); i++) {
+            SearchState state = states.get(i);
+            if (state.getParent() == null) {
+                openH.put(state.getKey(), state); // The first state has nowhere to back its cost up to, so it is kept
+                reopened.add(state);
+                continue;
+            }
+            SearchState ancestor = state.getParent();
+            while (ancestor != null) {
+                SearchState openState = openH.get(ancestor.getKey());
+                if (openState != null) {
+                    // The state will expand the forgotten ones again, so its cost must not be above theirs
+                    if (openState.getFCost() > state.getFCost()) {
+                        openState.setBackedUpCost(state.getFCost());
+                    }
+                    break;
+                }
+                // The state expanded with the ancestor's key may have been found through another path since
+                SearchState expandedState = expanded.get(ancestor.getKey());
+                if (expandedState != null) {
+                    expanded.remove(ancestor.getKey());
+                    closed.remove(ancestor.getKey());
+                    expandedState.setWeight(weight); // It may have been expanded with a higher one
+                    expandedState.setBackedUpCost(state.getFCost());
+                    openH.put(ancestor.getKey(), expandedState);
+                    reopened.add(expandedState);
+                    break;
+                }
+                ancestor = ancestor.getParent();
+            }
+        }
+
+        for (int i = 0; i < keep; i++) {
+            open.add(states.get(i));
+        }
+        for (SearchState ancestor : reopened) {
+            open.add(ancestor);
+        }
+    }
+
+    /* Find how many times more than the cheapest plan the best plan may cost. No plan can cost less than the lowest
+     * unweighted fCost of the states that are still open or inconsistent. With a weight of one, the costs backed up by
+     * forgetWorstStates are unweighted too, so they are a lower bound as well */
+    private double bound() {
+        int lowest = best.getCost();
+        ArrayList<SearchState> states = new ArrayList<>(open.size());
+        while (!open.isEmpty()) {
+            SearchState state = open.poll();
+            lowest = Math.min(lowest, weight == 1 ? state.getFCost() : state.getCost() + state.getHeuristic());
+            states.add(state);
+        }
+        for (SearchState state : states) {
+            open.add(state);
+        }
+        for (SearchState state : inconsistentStates) {
+            if (inconsistent.get(state.getKey()) == state) {
+                lowest = Math.min(lowest, state.getCost() + state.getHeuristic());
+            }
+        }
+        return lowest == 0 ? 1 : (double) best.getCost() / lowest;
+    }
+}
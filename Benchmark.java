@@ -0,0 +1,521 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/* The Benchmark class compares the search implementations on the maps in the maps/ directory. Each map is fully
+ * revealed to an agent standing on the start position, and the same searches are then run with every configuration
+ * (open list implementation and search options, the parallel search and a memory bounded search), reporting the
+ * number of expanded states, the length and cost of the plan, and the best time of a few runs.
+ *
+ * With -jps, it instead checks that jump point search finds exploration plans of the same cost as the normal uniform
+ * cost search, from every position and direction of partly revealed maps, also with the other options of the agent.
+ *
+ * With -incremental, it instead reveals the maps a step at a time, removing and putting back some obstacles on the
+ * way, and checks that a frontier flood that is updated after every step matches one found from scratch.
+ *
+ * With -parallel, it instead checks that the parallel search finds plans of the same cost as the sequential A* search,
+ * running it a few times for each search as the threads may expand the states in another order each time.
+ *
+ * Usage: java Benchmark [-jps | -incremental | -parallel] [map files...]   (defaults to all the .in files in maps/) */
+class Benchmark {
+    private final static int RUNS = 3;
+
+    private final static String[] CONFIGURATIONS = {"IndexedHeap", "BucketQueue", "Macro", "JumpPoints",
+            "DistanceField", "Parallel", "Bounded", "Anytime", "Dominance",
+            "Tools"};
+
+    // The number of threads of the parallel search configuration
+    private final static int PARALLEL_THREADS = 4;
+
+    // The largest number of open states of the memory bounded configuration. Low, so the bound is actually reached
+    private final static int BOUNDED_OPEN_STATES = 1000;
+
+    // The first weight of the anytime search configuration, that is lowered until the plan is the cheapest
+    private final static double ANYTIME_WEIGHT = 3;
+
+    // How far from the start the maps are revealed when checking jump point search
+    private final static int[] JPS_RADII = {4, 8, 12};
+
+    // How far from the start the maps are revealed, one step at a time, when checking the incremental frontier flood
+    private final static int INCREMENTAL_RADIUS = 40;
+
+    // How many changed cells the incremental frontier flood is updated with at a time, the cells of one view
+    private final static int VIEW_CELLS = 25;
+
+    // How many times each parallel search is run when checking it against the sequential one, as the threads may find
+    // the goals in another order each time
+    private final static int PARALLEL_RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<File> mapFiles = new ArrayList<>();
+        boolean checkJumpPoints = false;
+        boolean checkIncremental = false;
+        boolean checkParallel = false;
+
+        for (String arg : args) {
+            if (arg.equals("-jps")) {
+                checkJumpPoints = true;
+            } else if (arg.equals("-incremental")) {
+                checkIncremental = true;
+            } else if (arg.equals("-parallel")) {
+                checkParallel = true;
+            } else {
+                mapFiles.add(new File(arg));
+            }
+        }
+        if (mapFiles.isEmpty()) {
+            File[] files = new File("maps").listFiles();
+            if (files == null) {
+                System.out.println("Could not find the maps directory");
+                System.exit(-1);
+            }
+            java.util.Arrays.sort(files);
+            for (File file : files) {
+                if (file.getName().endsWith(".in")) {
+                    mapFiles.add(file);
+                }
+            }
+        }
+
+        if (checkJumpPoints) {
+            for (File mapFile : mapFiles) {
+                checkJumpPoints(mapFile);
+            }
+            return;
+        }
+        if (checkIncremental) {
+            for (File mapFile : mapFiles) {
+                checkIncremental(mapFile);
+            }
+            return;
+        }
+        if (checkParallel) {
+            for (File mapFile : mapFiles) {
+                checkParallel(mapFile);
+            }
+            return;
+        }
+
+        System.out.format("%-14s %-22s %-12s %10s %10s %10s%n", "map", "search", "config", "expanded", "plan/cost", "ms");
+        for (File mapFile : mapFiles) {
+            Agent agent = revealMap(mapFile);
+
+            runSearches(mapFile.getName(), "AStar treasure", agent, agent.knownTreasures.toList(), SearchMode.FREE);
+            runSearches(mapFile.getName(), "AStar items", agent, agent.knownItems.toList(), SearchMode.FREE);
+            runSearches(mapFile.getName(), "UCS safe (exhaust)", agent, null, SearchMode.SAFE);
+        }
+    }
+
+    /* Run the same search once with each configuration, and print the results */
+    private static void runSearches(String mapName, String searchName, Agent agent, LinkedList<Tile> targets, SearchMode mode) {
+        if (targets != null && targets.isEmpty()) {
+            return;
+        }
+
+        for (String configuration : CONFIGURATIONS) {
+            long bestTime = Long.MAX_VALUE;
+            long expanded = 0;
+            String plan = "";
+            ArrayList<SearchResult> solutions = null;
+
+            for (int run = 0; run <= RUNS; run++) {
+                SearchOptions options = newOptions(configuration);
+                CountingOpenList open = new CountingOpenList(options.openList);
+                options.openList = open;
+                long startTime = System.nanoTime();
+                ParallelSearch parallel = null;
+                AnytimeSearch anytime = null;
+                try {
+                    LinkedList<Character> path;
+                    if (options.threads > 1) {
+                        // Each thread of the parallel search has its own open list, so the search counts the states
+                        parallel = new ParallelSearch(agent, targets == null ? new LinkedList<>() : targets,
+                                targets == null ? "UCS" : "AStar", mode, options);
+                        path = parallel.run();
+                    } else if (options.weight > 1 && targets != null) {
+                        // The anytime search also keeps its own open list, and reports every plan it finds
+                        anytime = new AnytimeSearch(agent, targets, mode, options);
+                        path = anytime.run().plan;
+                        solutions = anytime.getSolutions();
+                    } else if (targets == null) {
+                        path = Search.UCS(agent, mode, options);
+                    } else {
+                        path = Search.AStar(agent, targets, mode, options);
+                    }
+                    plan = path.size() + "/" + SearchState.planCost(agent, path, mode);
+                } catch (NoPathFoundException e) {
+                    plan = "none";
+                } catch (OutOfMemoryError e) {
+                    plan = "OOM";
+                }
+                long time = System.nanoTime() - startTime;
+
+                // The first run only warms up the JVM
+                if (run > 0 && time < bestTime) {
+                    bestTime = time;
+                }
+                expanded = parallel != null ? parallel.getExpanded() : anytime != null ? anytime.getExpanded() : open.polls;
+                if (plan.equals("OOM")) {
+                    break;
+                }
+            }
+
+            System.out.format("%-14s %-22s %-12s %10d %10s %10.1f%n", mapName, searchName, configuration, expanded, plan,
+                    bestTime == Long.MAX_VALUE ? Double.NaN : bestTime / 1e6);
+
+            // Every plan the anytime search found on the way to the best one, with its bound
+            if (solutions != null) {
+                for (SearchResult solution : solutions) {
+                    System.out.format("%-14s %-22s %-12s %10s %10s %10s%n", "", "", "", "", solution.cost,
+                            String.format("x%.2f", solution.bound));
+                }
+            }
+        }
+    }
+
+    /* Compare the cost of the plans found by uniform cost search in SAFE mode with and without jump points, from every
+     * open cell and direction, with and without a key, of the map revealed to a few distances from the start, and print the mismatches.
+     * Jump point search is checked both on its own and with the macro actions and dominance filter of the agent */
+    private static void checkJumpPoints(File mapFile) throws IOException {
+        for (int radius : JPS_RADII) {
+            Agent agent = revealMap(mapFile, radius);
+            int checked = 0, mismatches = 0;
+
+            for (int x = 0; x < State.mapSize; x++) {
+                for (int y = 0; y < State.mapSize; y++) {
+                    // The agent picks up items when it moves onto them, so it never stands on one
+                    char type = agent.getType(x, y);
+                    if (!agent.isSeen(x, y) || (type != ' ' && type != '~') || agent.getItem(x, y) != '0') {
+                        continue;
+                    }
+                    for (int direction = 0; direction < 8; direction++) {
+                        agent.posX = x;
+                        agent.posY = y;
+                        agent.direction = direction % 4;
+                        agent.hasRaft = type == '~'; // The agent can only be on water with a raft
+                        agent.hasKey = direction >= 4; // Check every direction both with and without a key
+
+                        int expected = safePlanCost(agent, new SearchOptions());
+                        for (boolean macroActions : new boolean[]{false, true}) {
+                            // With macro actions, the options the agent explores with
+                            SearchOptions options = new SearchOptions();
+                            options.jumpPoints = true;
+                            options.macroActions = macroActions;
+                            options.dominance = macroActions;
+                            int actual = safePlanCost(agent, options);
+
+                            checked++;
+                            if (actual != expected) {
+                                mismatches++;
+                                System.out.format("%s r=%d: mismatch at x=%d y=%d dir=%d key=%b macro=%b, "
+                                                + "expected %d but got %d%n", mapFile.getName(), radius, x, y,
+                                        agent.direction, agent.hasKey, macroActions, expected, actual);
+                            }
+                        }
+                    }
+                }
+            }
+            System.out.format("%-14s radius %-3d %8d checked %6d mismatches%n", mapFile.getName(), radius, checked, mismatches);
+        }
+    }
+
+    /* Reveal the map one step further from the start at a time, and update a frontier flood with the changed cells
+     * of each step a view's worth at a time, as the agent sees them. After each update the repaired fields are
+     * compared to ones found from scratch. Every other step some of the obstacles are removed, so the next step puts
+     * them back, and the fields have to be repaired both when distances fall and when they rise. The time taken to
+     * update the flood, which also finds the frontier around the changed cells, is compared with the time taken to
+     * find the fields again for the same frontier */
+    private static void checkIncremental(File mapFile) throws IOException {
+        Agent agent = revealMap(mapFile, 0);
+        FrontierFlood flood = new FrontierFlood(agent);
+        int checked = 0, mismatches = 0, updates = 0;
+        long updateTime = 0, buildTime = 0;
+
+        for (int radius = 1; radius <= INCREMENTAL_RADIUS; radius++) {
+            Agent next = revealMap(mapFile, radius);
+            int[] changed = new int[State.mapSize * State.mapSize];
+            byte[] values = new byte[changed.length];
+            int numChanged = 0;
+            for (int y = 0; y < State.mapSize; y++) {
+                for (int x = 0; x < State.mapSize; x++) {
+                    byte cell = next.getCell(x, y);
+                    char type = next.getType(x, y);
+                    if (radius % 2 == 0 && (type == 't' || type == '-' || type == '*') && (x * 7 + y * 3) % 5 == 0) {
+                        cell = Terrain.encode(' ', ' '); // As if the obstacle had been removed
+                    }
+                    if (agent.getCell(x, y) != cell) {
+                        values[numChanged] = cell;
+                        changed[numChanged++] = y * State.mapSize + x;
+                    }
+                }
+            }
+            agent.knownTrees = next.knownTrees;
+
+            for (int from = 0; from < numChanged; from += VIEW_CELLS) {
+                int[] view = java.util.Arrays.copyOfRange(changed, from, Math.min(from + VIEW_CELLS, numChanged));
+                for (int i = 0; i < view.length; i++) {
+                    agent.setCell(view[i] % State.mapSize, view[i] / State.mapSize, values[from + i]);
+                }
+
+                long startTime = System.nanoTime();
+                flood.update(view, view.length);
+                updateTime += System.nanoTime() - startTime;
+                updates++;
+
+                FrontierFlood expected = new FrontierFlood(agent);
+                if (flood.getFrontier().size() != expected.getFrontier().size()) {
+                    mismatches++;
+                    System.out.format("%s r=%d: frontier has %d tiles, expected %d%n", mapFile.getName(), radius,
+                            flood.getFrontier().size(), expected.getFrontier().size());
+                }
+                for (SearchMode mode : SearchMode.values()) {
+                    startTime = System.nanoTime();
+                    DistanceField built = new DistanceField(agent, expected.getFrontier(), mode, null);
+                    buildTime += System.nanoTime() - startTime;
+
+                    for (int y = 0; y < State.mapSize; y++) {
+                        for (int x = 0; x < State.mapSize; x++) {
+                            int actual = flood.getField(mode).get(x, y);
+                            int distance = built.get(x, y);
+                            checked++;
+                            if (actual != distance) {
+                                mismatches++;
+                                System.out.format("%s r=%d %s: mismatch at x=%d y=%d, expected %d but got %d%n",
+                                        mapFile.getName(), radius, mode, x, y, distance, actual);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        System.out.format("%-14s %6d updates %10d checked %6d mismatches   update %8.1f ms   "
+                        + "fields from scratch %8.1f ms%n", mapFile.getName(), updates, checked, mismatches,
+                updateTime / 1e6, buildTime / 1e6);
+    }
+
+    /* Compare the cost of the plans found by the parallel search with the cost of the plans found by the sequential one,
+     * for the treasures and for each known item of the whole map, and print the mismatches */
+    private static void checkParallel(File mapFile) throws IOException {
+        Agent agent = revealMap(mapFile);
+        ArrayList<LinkedList<Tile>> targetLists = new ArrayList<>();
+        targetLists.add(agent.knownTreasures.toList());
+        for (Tile item : agent.knownItems) {
+            LinkedList<Tile> targets = new LinkedList<>();
+            targets.add(item);
+            targetLists.add(targets);
+        }
+
+        int checked = 0, mismatches = 0;
+        for (LinkedList<Tile> targets : targetLists) {
+            if (targets.isEmpty()) {
+                continue;
+            }
+            int expected = planCost(agent, targets, newOptions("DistanceField"));
+            for (int run = 0; run < PARALLEL_RUNS; run++) {
+                int actual = planCost(agent, targets, newOptions("Parallel"));
+                checked++;
+                if (actual != expected) {
+                    mismatches++;
+                    System.out.format("%s: mismatch for %s, expected %d but got %d%n", mapFile.getName(), targets,
+                            expected, actual);
+                }
+            }
+        }
+        System.out.format("%-14s %8d checked %6d mismatches%n", mapFile.getName(), checked, mismatches);
+    }
+
+    /* The cost of the plan found by A* search in FREE mode to any of the targets, or -1 if there is none */
+    private static int planCost(Agent agent, LinkedList<Tile> targets, SearchOptions options) {
+        try {
+            return SearchState.planCost(agent, Search.AStar(agent, targets, SearchMode.FREE, options), SearchMode.FREE);
+        } catch (NoPathFoundException e) {
+            return -1;
+        }
+    }
+
+    /* The cost of the exploration plan found by uniform cost search in SAFE mode, or -1 if there is none */
+    private static int safePlanCost(Agent agent, SearchOptions options) {
+        try {
+            return SearchState.planCost(agent, Search.UCS(agent, SearchMode.SAFE, options), SearchMode.SAFE);
+        } catch (NoPathFoundException e) {
+            return -1;
+        }
+    }
+
+    /* Create the search options for the configuration with the given name */
+    private static SearchOptions newOptions(String name) {
+        SearchOptions options = new SearchOptions();
+
+        switch (name) {
+            case "IndexedHeap":
+                options.openList = new IndexedHeap();
+                break;
+            case "BucketQueue":
+                options.openList = new BucketQueue();
+                break;
+            case "Macro":
+                options.openList = new BucketQueue();
+                options.macroActions = true;
+                break;
+            case "JumpPoints":
+                options.openList = new BucketQueue();
+                options.macroActions = true;
+                options.jumpPoints = true;
+                break;
+            case "DistanceField":
+                options.openList = new BucketQueue();
+                options.macroActions = true;
+                options.jumpPoints = true;
+                options.distanceField = true;
+                break;
+            case "Parallel":
+                options.macroActions = true;
+                options.jumpPoints = true;
+                options.distanceField = true;
+                options.threads = PARALLEL_THREADS;
+                break;
+            case "Bounded":
+                options.openList = new BucketQueue();
+                options.macroActions = true;
+                options.jumpPoints = true;
+                options.distanceField = true;
+                options.maxOpenStates = BOUNDED_OPEN_STATES;
+                break;
+            case "Anytime":
+                options.openList = new BucketQueue(); // Only used by uniform cost search
+                options.macroActions = true;
+                options.jumpPoints = true;
+                options.distanceField = true;
+                options.weight = ANYTIME_WEIGHT;
+                break;
+            case "Dominance":
+                options.openList = new BucketQueue();
+                options.macroActions = true;
+                options.jumpPoints = true;
+                options.distanceField = true;
+                options.dominance = true;
+                break;
+            case "Tools":
+                options.openList = new BucketQueue();
+                options.macroActions = true;
+                options.jumpPoints = true;
+                options.distanceField = true;
+                options.toolHeuristic = true;
+                break;
+            default:
+                throw new RuntimeException("Unknown configuration: " + name);
+        }
+        return options;
+    }
+
+    /* Create an agent that has seen the whole map, by showing it the view from every position on the map */
+    private static Agent revealMap(File mapFile) throws IOException {
+        return revealMap(mapFile, Integer.MAX_VALUE);
+    }
+
+    /* Create an agent that has seen the view from every position within the given (manhattan) distance of the start */
+    private static Agent revealMap(File mapFile, int radius) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        BufferedReader in = new BufferedReader(new FileReader(mapFile));
+        String line = in.readLine();
+        while (line != null && line.length() > 0) {
+            lines.add(line);
+            line = in.readLine();
+        }
+        in.close();
+
+        // Find the start position and direction of the agent
+        int startRow = 0, startCol = 0, direction = 1;
+        for (int row = 0; row < lines.size(); row++) {
+            for (int col = 0; col < lines.get(row).length(); col++) {
+                switch (lines.get(row).charAt(col)) {
+                    case '>':
+                        direction = 0;
+                        break;
+                    case '^':
+                        direction = 1;
+                        break;
+                    case '<':
+                        direction = 2;
+                        break;
+                    case 'v':
+                        direction = 3;
+                        break;
+                    default:
+                        continue;
+                }
+                startRow = row;
+                startCol = col;
+            }
+        }
+
+        Agent agent = new Agent();
+        char[][] view = new char[5][5];
+        for (int row = 0; row < lines.size(); row++) {
+            for (int col = 0; col < lines.get(row).length(); col++) {
+                if (Math.abs(row - startRow) + Math.abs(col - startCol) > radius) {
+                    continue;
+                }
+                for (int i = 0; i < 5; i++) {
+                    for (int j = 0; j < 5; j++) {
+                        view[i][j] = mapChar(lines, row - 2 + i, col - 2 + j, startRow, startCol);
+                    }
+                }
+                agent.posX = State.start + col - startCol;
+                agent.posY = State.start + row - startRow;
+                agent.direction = 1; // The views are not rotated
+                agent.updateMap(view);
+            }
+        }
+
+        agent.posX = State.start;
+        agent.posY = State.start;
+        agent.direction = direction;
+        return agent;
+    }
+
+    /* Get the character at the given position of the map file, as it would be shown to the agent */
+    private static char mapChar(ArrayList<String> lines, int row, int col, int startRow, int startCol) {
+        if (row < 0 || row >= lines.size() || col < 0 || col >= lines.get(row).length()) {
+            return '.';
+        }
+        if (row == startRow && col == startCol) {
+            return ' ';
+        }
+        return lines.get(row).charAt(col);
+    }
+
+    /* Open list wrapper that counts the number of expanded states */
+    private static class CountingOpenList implements OpenList {
+        private final OpenList open;
+        private long polls = 0;
+
+        CountingOpenList(OpenList open) {
+            this.open = open;
+        }
+
+        public void add(SearchState state) {
+            open.add(state);
+        }
+
+        public SearchState poll() {
+            polls++;
+            return open.poll();
+        }
+
+        public void decreaseKey(SearchState oldState, SearchState newState) {
+            open.decreaseKey(oldState, newState);
+        }
+
+        public boolean isEmpty() {
+            return open.isEmpty();
+        }
+
+        public int size() {
+            return open.size();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+
+/* The BucketQueue class is an open list that sorts states into buckets by their fCost (Dial's algorithm). All action
+ * costs are small integers, so the fCosts of the open states only span a small range of values, and adding a state or
+ * moving it to a cheaper bucket is done in constant time. Each fCost bucket is split into smaller buckets by the
+ * heuristic, so states that are closer to the target are expanded first, like the tie breaker in SearchState.compareTo */
+class BucketQueue implements OpenList {
+    private ArrayList<ArrayList<ArrayList<SearchState>>> buckets = new ArrayList<>();
+    private int lowestBucket = 0;
+    private int size = 0;
+
+    /* Add a state to the bucket matching its fCost and heuristic */
+    public void add(SearchState state) {
+        int fCost = state.getFCost();
+        int heuristic = state.getHeuristic();
+
+        while (buckets.size() <= fCost) {
+            buckets.add(new ArrayList<ArrayList<SearchState>>());
+        }
+        ArrayList<ArrayList<SearchState>> costBucket = buckets.get(fCost);
+        while (costBucket.size() <= heuristic) {
+            costBucket.add(new ArrayList<SearchState>());
+        }
+
+        ArrayList<SearchState> bucket = costBucket.get(heuristic);
+        state.openIndex = bucket.size();
+        bucket.add(state);
+
+        if (fCost < lowestBucket) {
+            lowestBucket = fCost;
+        }
+        size++;
+    }
+
+    /* Remove and return a state from the lowest non-empty bucket */
+    public SearchState poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        // Buckets below the lowest bucket are always empty, so the search for a state can start from there
+        while (true) {
+            for (ArrayList<SearchState> bucket : buckets.get(lowestBucket)) {
+                if (!bucket.isEmpty()) {
+                    SearchState state = bucket.remove(bucket.size() - 1);
+                    state.openIndex = -1;
+                    size--;
+                    return state;
+                }
+            }
+            lowestBucket++;
+        }
+    }
+
+    /* Remove the old state from its bucket, and add the new state to its (cheaper) bucket */
+    public void decreaseKey(SearchState oldState, SearchState newState) {
+        ArrayList<SearchState> bucket = buckets.get(oldState.getFCost()).get(oldState.getHeuristic());
+        int index = oldState.openIndex;
+        if (index < 0 || index >= bucket.size() || bucket.get(index) != oldState) {
+            throw new IllegalStateException("State to replace is not in the bucket queue");
+        }
+
+        // Fill the hole by moving the last state of the bucket into it
+        SearchState last = bucket.remove(bucket.size() - 1);
+        if (last != oldState) {
+            bucket.set(index, last);
+            last.openIndex = index;
+        }
+        oldState.openIndex = -1;
+        size--;
+
+        add(newState);
+    }
+
+    /* Check if there are no states in any of the buckets */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /* Get the number of states in all buckets */
+    public int size() {
+        return size;
+    }
+}
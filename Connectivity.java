@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/* The Connectivity class tells which cells of the known map the agent may be able to get between in each search mode,
+ * so a search that can't reach any of its targets can be given up before it has tried every state it can reach. For
+ * each mode the cells are joined into components with union-find: two neighbouring cells are in the same component if
+ * the agent could move between them in that mode, once it has removed what the mode lets it remove. Like DistanceField,
+ * the agent is assumed to find the key, axe or dynamite it needs, so in SAFE mode doors count as land, in MODERATE mode
+ * trees do too and water joins land, and in FREE mode walls are land as well. Each component also counts its tiles with
+ * unseen tiles around them, so an exploration that can't reach one is given up as well.
+ *
+ * The index is kept up to date with the cells of the agent's map as they change. The map only ever gains cells the
+ * agent can move through, as tiles are seen and obstacles removed, so components are only ever joined, which
+ * union-find does in near constant time. If a cell does become an obstacle again (the benchmarks put removed obstacles
+ * back), its component stays joined, which only makes the index miss a way to give up early. */
+class Connectivity {
+
+    // The change in cell index when moving one step in each direction (east, north, west, south)
+    private final static int[] STEPS = {1, -State.mapSize, -1, State.mapSize};
+
+    // The land or water a cell counts as in a component, or NONE if it isn't part of any
+    private final static int NONE = 0;
+    private final static int LAND = 1;
+    private final static int WATER = 2;
+
+    private final State state;
+    private final boolean[] frontier = new boolean[State.mapSize * State.mapSize]; // Tiles with unseen tiles around them
+
+    // For each mode, the parent of each cell in its component's tree (-1 if the cell is in no component), and for the
+    // root of each component its number of cells and of frontier tiles
+    private final int[][] parent = new int[SearchMode.values().length][State.mapSize * State.mapSize];
+    private final int[][] size = new int[SearchMode.values().length][State.mapSize * State.mapSize];
+    private final int[][] frontierTiles = new int[SearchMode.values().length][State.mapSize * State.mapSize];
+
+    /* Constructor for the index of the given state's map, which must not have been seen yet */
+    Connectivity(State state) {
+        this.state = state;
+        for (int[] cells : parent) {
+            Arrays.fill(cells, -1);
+        }
+    }
+
+    /* Bring the index up to date with a cell of the state's map that has changed */
+    void cellChanged(int cell) {
+        for (SearchMode mode : SearchMode.values()) {
+            int[] parents = parent[mode.ordinal()];
+            int kind = kind(cell, mode);
+            if (kind == NONE || parents[cell] != -1) {
+                continue;
+            }
+
+            parents[cell] = cell;
+            size[mode.ordinal()][cell] = 1;
+            frontierTiles[mode.ordinal()][cell] = frontier[cell] ? 1 : 0;
+            for (int step : STEPS) {
+                int next = neighbour(cell, step);
+                if (next != -1 && parents[next] != -1 && (mode != SearchMode.SAFE || kind(next, mode) == kind)) {
+                    union(cell, next, mode.ordinal());
+                }
+            }
+        }
+
+        // Only the tiles that can see the changed cell can have become, or stopped being, frontier tiles
+        int cellX = cell % State.mapSize;
+        int cellY = cell / State.mapSize;
+        for (int y = Math.max(cellY - 2, 2); y <= Math.min(cellY + 2, State.mapSize - 3); y++) {
+            for (int x = Math.max(cellX - 2, 2); x <= Math.min(cellX + 2, State.mapSize - 3); x++) {
+                int tile = y * State.mapSize + x;
+                boolean frontierTile = state.isSeen(x, y) && state.numUnseenTiles(x, y) > 0;
+                if (frontierTile != frontier[tile]) {
+                    frontier[tile] = frontierTile;
+                    for (int mode = 0; mode < parent.length; mode++) {
+                        if (parent[mode][tile] != -1) {
+                            frontierTiles[mode][find(tile, mode)] += frontierTile ? 1 : -1;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* Check if any of the targets may be reachable from the given position in the given search mode */
+    boolean canReach(int x, int y, LinkedList<Tile> targets, SearchMode mode) {
+        int from = y * State.mapSize + x;
+        if (parent[mode.ordinal()][from] == -1) {
+            return true; // Not a cell the agent can normally stand on, so leave it to the search
+        }
+        int root = root(from, mode.ordinal());
+        for (Tile target : targets) {
+            int cell = target.getY() * State.mapSize + target.getX();
+            if (parent[mode.ordinal()][cell] != -1 && root(cell, mode.ordinal()) == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Check if a tile with unseen tiles around it may be reachable from the given position in the given search mode */
+    boolean canExplore(int x, int y, SearchMode mode) {
+        int from = y * State.mapSize + x;
+        return parent[mode.ordinal()][from] == -1 || frontierTiles[mode.ordinal()][root(from, mode.ordinal())] > 0;
+    }
+
+    /* Get the land or water the cell counts as in the given search mode, once the obstacles the mode lets the agent
+     * remove have been removed. Outside of SAFE mode, land and water are the same component */
+    private int kind(int cell, SearchMode mode) {
+        switch (state.getType(cell % State.mapSize, cell / State.mapSize)) {
+            case ' ':
+            case '-':
+                return LAND;
+            case '~':
+                return WATER;
+            case 't':
+                return mode != SearchMode.SAFE ? LAND : NONE;
+            case '*':
+                return mode == SearchMode.FREE ? LAND : NONE;
+            default:
+                return NONE; // Unseen or off the map
+        }
+    }
+
+    /* Find the root of the cell's component without changing the trees, so the searches can check reachability from
+     * several threads at once. Joining the smaller component under the larger keeps the trees shallow */
+    private int root(int cell, int mode) {
+        int[] parents = parent[mode];
+        while (parents[cell] != cell) {
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    /* Find the root of the cell's component, halving the path to it on the way. Only used while the index is brought up
+     * to date, when no search is running */
+    private int find(int cell, int mode) {
+        int[] parents = parent[mode];
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    /* Join the components of two cells, putting the smaller one under the larger */
+    private void union(int first, int second, int mode) {
+        int a = find(first, mode);
+        int b = find(second, mode);
+        if (a == b) {
+            return;
+        }
+        if (size[mode][a] < size[mode][b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        parent[mode][b] = a;
+        size[mode][a] += size[mode][b];
+        frontierTiles[mode][a] += frontierTiles[mode][b];
+    }
+
+    /* Get the cell next to the given one in the direction of the step, or -1 if it is off the map */
+    private static int neighbour(int cell, int step) {
+        int next = cell + step;
+        if (next < 0 || next >= State.mapSize * State.mapSize
+                || Math.abs(next % State.mapSize - cell % State.mapSize) > 1) {
+            return -1;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,501 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/* The DistanceField class holds, for every cell of the map, the cost of getting from the cell to the nearest of a set
+ * of targets over the map the agent knows. It is found with a backward Dijkstra search from all the targets at once,
+ * so looking up the heuristic of a search state is a single array access, and it goes around walls and water instead
+ * of straight through them like the Manhattan distance does.
+ *
+ * The search states can change the map by removing obstacles, so the obstacles the search mode may remove are passable
+ * at the lowest cost of removing them and moving in. Doors can be unlocked and trees chopped even if the agent has no
+ * key or axe yet, as it may pick one up on the way. The costs are the same as in SearchState.increaseCost, except that
+ * turning is free. On the agent's map the distances never overestimate, but a search state that has removed obstacles
+ * itself may go back through them for free, while the field still charges for removing them. The heuristic of such a
+ * state is then the lower of the field and a bound on the paths through those obstacles (see
+ * SearchState.distanceThroughRemoved), which keeps it a lower bound.
+ *
+ * A state that lacks the tool for an obstacle can't go through it before it has gone to an item that gives one, so the
+ * field can also give the distances for the tools a state holds (see get(State)). They are found in a second field,
+ * where only the obstacles the tools can remove are passable, and the known items that give a missing tool are extra
+ * targets, at the distance from the item in this field. Going through an item like that is the cheapest a path that
+ * picks up a new tool can be, so the distances are still a lower bound on the agent's map. A field is found for each
+ * set of tools when it is first needed.
+ *
+ * A field that is kept while the map changes can be repaired instead of found again (see repair), in two passes over
+ * the cells around the changes. The first finds the cells that have lost their way to a target, cheapest first, as a
+ * cell only loses it if every neighbour it could have come through has. The second finds the distances of those cells
+ * and the changed ones again from the cells around them, and spreads them to the rest of the field only as far as they
+ * get cheaper. After a new view of the map that is a few hundred cells, where finding the field again is every cell the
+ * targets can be reached from. */
+class DistanceField {
+
+    // Distance of the cells that no target can be reached from
+    final static int UNREACHABLE = Integer.MAX_VALUE;
+
+    // The tools a state may hold, as bits of a set of tools
+    final static int KEY = 1;
+    final static int AXE = 2;
+    final static int DYNAMITE = 4;
+    final static int ALL_TOOLS = KEY | AXE | DYNAMITE;
+
+    // The change in cell index when moving one step in each direction (east, north, west, south)
+    private final static int[] STEPS = {1, -State.mapSize, -1, State.mapSize};
+
+    private final State state;
+    private final SearchMode mode;
+    private final boolean[] corridor;
+    private final boolean[] targets;
+    private int toWaterCost;
+
+    // The tools obstacles may be removed with, ALL_TOOLS unless this is a field for the tools of a state. Then the
+    // field it was found from gives the distances from the items
+    private final int tools;
+    private final DistanceField allTools;
+    private final AtomicReferenceArray<DistanceField> toolFields = new AtomicReferenceArray<>(ALL_TOOLS + 1);
+
+    private final int[] distances = new int[State.mapSize * State.mapSize];
+
+    // The cells around the changes since the field was found or repaired, and the cells the last repair found had lost
+    // their way to a target. Only allocated once the field is repaired
+    private int[] changed = new int[64];
+    private int numChanged = 0;
+    private boolean[] lost = null;
+    private int[] lostCells = null;
+
+    // The open cells while the distances are found: the first entry of each distance's bucket, and for each entry its
+    // cell and the next entry in the same bucket. Cells are added again when a cheaper path is found, not moved
+    private int[] heads;
+    private int[] entryCell;
+    private int[] entryNext;
+    private int numEntries;
+
+    /* Constructor that finds the distances to the targets in the given state's map. Cells outside the corridor (if one
+     * is given) are not passable, the same as for the search */
+    DistanceField(State state, LinkedList<Tile> targets, SearchMode mode, boolean[] corridor) {
+        this.state = state;
+        this.mode = mode;
+        this.corridor = corridor;
+        this.targets = new boolean[State.mapSize * State.mapSize];
+        for (Tile target : targets) {
+            this.targets[target.getY() * State.mapSize + target.getX()] = true;
+        }
+        this.tools = ALL_TOOLS;
+        this.allTools = null;
+        build();
+    }
+
+    /* Constructor that finds the distances to the targets in the given state's map for a state holding the given tools,
+     * that picks up nothing on the way. Only the obstacles the tools can remove are passable. Used by RouteTable, which
+     * leaves picking up the items to TourPlanner */
+    DistanceField(State state, LinkedList<Tile> targets, SearchMode mode, int tools) {
+        this.state = state;
+        this.mode = mode;
+        this.corridor = null;
+        this.targets = new boolean[State.mapSize * State.mapSize];
+        for (Tile target : targets) {
+            this.targets[target.getY() * State.mapSize + target.getX()] = true;
+        }
+        this.tools = tools;
+        this.allTools = null;
+        build();
+    }
+
+    /* Constructor that finds the distances for a state holding the given tools, from a field for all tools */
+    private DistanceField(DistanceField allTools, int tools) {
+        this.state = allTools.state;
+        this.mode = allTools.mode;
+        this.corridor = allTools.corridor;
+        this.targets = allTools.targets;
+        this.tools = tools;
+        this.allTools = allTools;
+        build();
+    }
+
+    /* Get the distance from the given position to the nearest target, or UNREACHABLE if there is no way to a target */
+    int get(int x, int y) {
+        return distances[y * State.mapSize + x];
+    }
+
+    /* Get the cells of a cheapest path from the given position to the nearest target, not including the position, or
+     * null if there is no way to a target. Each cell is one the previous cell can move into at the cost the distances
+     * went down by */
+    int[] path(int x, int y) {
+        int cell = y * State.mapSize + x;
+        if (distances[cell] == UNREACHABLE) {
+            return null;
+        }
+        int[] path = new int[16];
+        int length = 0;
+        while (!targets[cell]) {
+            int next = -1;
+            for (int step : STEPS) {
+                int neighbour = neighbour(cell, step);
+                int cost = neighbour == -1 || distances[neighbour] == UNREACHABLE ? -1 : moveCost(cell, neighbour);
+                if (cost >= 0 && distances[neighbour] + cost == distances[cell]) {
+                    next = neighbour;
+                    break;
+                }
+            }
+            if (next == -1) {
+                return null; // The distance came from an item for a missing tool, not from a target
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = next;
+            cell = next;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /* Get the distance from the state's position to the nearest target, for the tools the state holds. Only obstacles it
+     * can remove with them are passable, unless it goes to an item for a tool it lacks first. The field's map doesn't
+     * have the obstacles the state has removed itself, so the distance may be too high for a path back through one of
+     * them, which the caller has to allow for (see SearchState.setHeuristic) */
+    int get(State state) {
+        int tools = usefulTools(heldTools(state), mode);
+        if (tools == usefulTools(ALL_TOOLS, mode)) {
+            return get(state.posX, state.posY);
+        }
+
+        DistanceField field = toolFields.get(tools);
+        if (field == null) {
+            synchronized (toolFields) { // The field may be shared by the threads of a parallel search
+                field = toolFields.get(tools);
+                if (field == null) {
+                    field = new DistanceField(this, tools);
+                    toolFields.set(tools, field);
+                }
+            }
+        }
+        return field.get(state.posX, state.posY);
+    }
+
+    /* Get the set of tools the given state holds */
+    static int heldTools(State state) {
+        return (state.hasKey ? KEY : 0) | (state.hasAxe ? AXE : 0) | (state.dynamites > 0 ? DYNAMITE : 0);
+    }
+
+    /* Get the tool an item gives, or 0 if it isn't one */
+    static int tool(char item) {
+        switch (item) {
+            case 'k':
+                return KEY;
+            case 'a':
+                return AXE;
+            case 'd':
+                return DYNAMITE;
+            default:
+                return 0;
+        }
+    }
+
+    /* Get the tools of a set that can remove anything in the given search mode. Dynamite can only be used in FREE mode,
+     * and then removes every obstacle by itself, and trees can't be removed in SAFE mode */
+    static int usefulTools(int tools, SearchMode mode) {
+        switch (mode) {
+            case SAFE:
+                return tools & KEY;
+            case MODERATE:
+                return tools & (KEY | AXE);
+            default:
+                return (tools & DYNAMITE) != 0 ? ALL_TOOLS : tools;
+        }
+    }
+
+    /* Make a cell a target or not. The distances are not changed until repair is called */
+    void setTarget(int cell, boolean target) {
+        if (targets[cell] != target) {
+            targets[cell] = target;
+            addChanged(cell);
+        }
+    }
+
+    /* Tell the field that a cell of the map has changed. The distances are not changed until repair is called */
+    void cellChanged(int cell) {
+        addChanged(cell);
+        for (int step : STEPS) {
+            int neighbour = neighbour(cell, step);
+            if (neighbour != -1) {
+                addChanged(neighbour);
+            }
+        }
+    }
+
+    /* Bring the distances up to date with the changes to the map and targets since the field was found or repaired.
+     * Only a field for all tools can be repaired, as the items are not targets of it. The fields for the tools of a
+     * state are found again when they are next needed */
+    void repair() {
+        for (int i = 0; i <= ALL_TOOLS; i++) {
+            toolFields.set(i, null);
+        }
+        if (toWaterCost(state) != toWaterCost) {
+            numChanged = 0;
+            build(); // Every step from land onto water costs something else, so nothing can be reused
+            return;
+        }
+        if (numChanged == 0) {
+            return;
+        }
+        if (lost == null) {
+            lost = new boolean[distances.length];
+            lostCells = new int[64];
+        }
+        heads = new int[]{-1};
+        entryCell = new int[1024];
+        entryNext = new int[1024];
+        numEntries = 0;
+
+        // Find the cells that have lost their way to a target, in the order of their old distances. A cell that has
+        // lost it may have been the way of its neighbours, so they are checked after it
+        for (int i = 0; i < numChanged; i++) {
+            if (distances[changed[i]] != UNREACHABLE) {
+                push(distances[changed[i]], changed[i]);
+            }
+        }
+        int numLost = 0;
+        for (int distance = 0; distance < heads.length; distance++) {
+            while (heads[distance] != -1) {
+                int entry = heads[distance];
+                heads[distance] = entryNext[entry];
+                int cell = entryCell[entry];
+                if (lost[cell] || hasWay(cell)) {
+                    continue;
+                }
+
+                lost[cell] = true;
+                if (numLost == lostCells.length) {
+                    lostCells = Arrays.copyOf(lostCells, numLost * 2);
+                }
+                lostCells[numLost++] = cell;
+                for (int step : STEPS) {
+                    int previous = neighbour(cell, step);
+                    if (previous != -1 && !lost[previous] && distances[previous] != UNREACHABLE
+                            && distances[previous] >= distance) {
+                        push(distances[previous], previous);
+                    }
+                }
+            }
+        }
+        numEntries = 0;
+
+        // Find the distances of the lost and changed cells again from their neighbours, and spread them from there
+        for (int i = 0; i < numLost; i++) {
+            distances[lostCells[i]] = UNREACHABLE;
+            lost[lostCells[i]] = false;
+        }
+        for (int i = 0; i < numLost; i++) {
+            reseed(lostCells[i]);
+        }
+        for (int i = 0; i < numChanged; i++) {
+            reseed(changed[i]);
+        }
+        numChanged = 0;
+        spread();
+    }
+
+    /* Get the lowest cost of moving from land onto water in the given state's map. It depends on the number of trees
+     * known, as each one may be chopped for a raft, and only rises as trees are chopped */
+    static int toWaterCost(State state) {
+        int trees = state.knownTrees.size();
+        return trees > 0 ? 5 / trees : 5;
+    }
+
+    /* Find the distances of the whole map, with Dijkstra's algorithm */
+    private void build() {
+        toWaterCost = toWaterCost(state);
+        Arrays.fill(distances, UNREACHABLE);
+
+        heads = new int[]{-1};
+        entryCell = new int[1024];
+        entryNext = new int[1024];
+        numEntries = 0;
+        for (int cell = 0; cell < targets.length; cell++) {
+            if (targets[cell]) {
+                distances[cell] = 0;
+                push(0, cell);
+            }
+        }
+
+        // From an item for a missing tool, the rest of the way costs at least as much as with every tool
+        if (allTools != null) {
+            for (Tile item : state.knownItems) {
+                int cell = item.getY() * State.mapSize + item.getX();
+                int distance = allTools.distances[cell];
+                if (givesMissingTool(item.getItem()) && distance < distances[cell]) {
+                    distances[cell] = distance;
+                    push(distance, cell);
+                }
+            }
+        }
+
+        spread();
+    }
+
+    /* Spread the distances of the open cells to the cells that can get to them cheaper than they could so far */
+    private void spread() {
+        // All costs are small integers, so the open cells are kept in one bucket per distance (Dial's algorithm)
+        for (int distance = 0; distance < heads.length; distance++) {
+            while (heads[distance] != -1) {
+                int entry = heads[distance];
+                heads[distance] = entryNext[entry];
+                int cell = entryCell[entry];
+                if (distance > distances[cell]) {
+                    continue; // A cheaper path to the cell has already been found
+                }
+
+                // Find the cost of moving from each neighbour into this cell
+                for (int step : STEPS) {
+                    int previous = neighbour(cell, step);
+                    int cost = previous == -1 ? -1 : moveCost(previous, cell);
+                    if (cost >= 0 && distance + cost < distances[previous]) {
+                        distances[previous] = distance + cost;
+                        push(distance + cost, previous);
+                    }
+                }
+            }
+        }
+        heads = null; // Only needed while the distances are found
+        entryCell = null;
+        entryNext = null;
+    }
+
+    /* Check if the cell can't have lost its way to a target, as it is a target, or can move into a neighbour that
+     * hasn't lost its way for at most the difference in their distances */
+    private boolean hasWay(int cell) {
+        if (targets[cell]) {
+            return true;
+        }
+        for (int step : STEPS) {
+            int next = neighbour(cell, step);
+            int cost = next == -1 || lost[next] || distances[next] == UNREACHABLE ? -1 : moveCost(cell, next);
+            if (cost >= 0 && distances[next] + cost <= distances[cell]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Find the distance of a cell again from its neighbours, and open it if that is cheaper than its distance */
+    private void reseed(int cell) {
+        int distance = targets[cell] ? 0 : UNREACHABLE;
+        for (int step : STEPS) {
+            int next = neighbour(cell, step);
+            int cost = next == -1 || distances[next] == UNREACHABLE ? -1 : moveCost(cell, next);
+            if (cost >= 0 && distances[next] + cost < distance) {
+                distance = distances[next] + cost;
+            }
+        }
+        if (distance < distances[cell]) {
+            distances[cell] = distance;
+            push(distance, cell);
+        }
+    }
+
+    /* The lowest cost of moving from the previous cell into the given neighbouring cell, including removing the obstacle
+     * in it, or -1 if the agent can never do that in this search mode */
+    private int moveCost(int previous, int cell) {
+        if (corridor != null && !corridor[previous]) {
+            return -1;
+        }
+        char previousType = state.getType(previous % State.mapSize, previous / State.mapSize);
+        if (previousType != ' ' && previousType != '~' && !canRemove(previousType)) {
+            return -1; // Unseen, or an obstacle the agent can never stand on
+        }
+
+        // The cost of removing the cell's obstacle, if there is one
+        char type = state.getType(cell % State.mapSize, cell / State.mapSize);
+        int cost;
+        switch (type) {
+            case ' ':
+            case '~':
+                cost = 0;
+                break;
+            case 't':
+            case '-':
+                if (!canRemove(type)) {
+                    return -1;
+                }
+                cost = 1;
+                break;
+            case '*':
+                if (!canRemove(type)) {
+                    return -1;
+                }
+                cost = 15;
+                break;
+            default:
+                return -1; // Unseen or off the map
+        }
+
+        // The cost of moving forward into the cell. Obstacles are land once they have been removed
+        boolean fromWater = previousType == '~';
+        boolean toWater = type == '~';
+        if (fromWater != toWater && mode == SearchMode.SAFE) {
+            return -1;
+        }
+        if (fromWater && !toWater) {
+            return cost + 5;
+        }
+        if (!fromWater && toWater) {
+            return cost + toWaterCost;
+        }
+        return cost + 1;
+    }
+
+    /* Get the cell next to the given one in the direction of the step, or -1 if it is off the map */
+    private static int neighbour(int cell, int step) {
+        int next = cell + step;
+        if (next < 0 || next >= State.mapSize * State.mapSize
+                || Math.abs(next % State.mapSize - cell % State.mapSize) > 1) {
+            return -1;
+        }
+        return next;
+    }
+
+    /* Add a cell to the cells around the changes */
+    private void addChanged(int cell) {
+        if (numChanged == changed.length) {
+            changed = Arrays.copyOf(changed, numChanged * 2);
+        }
+        changed[numChanged++] = cell;
+    }
+
+    /* Add a cell to the bucket of the given distance */
+    private void push(int distance, int cell) {
+        if (distance >= heads.length) {
+            int oldLength = heads.length;
+            heads = Arrays.copyOf(heads, Math.max(distance + 1, oldLength * 2));
+            Arrays.fill(heads, oldLength, heads.length, -1);
+        }
+        if (numEntries == entryCell.length) {
+            entryCell = Arrays.copyOf(entryCell, numEntries * 2);
+            entryNext = Arrays.copyOf(entryNext, numEntries * 2);
+        }
+        entryCell[numEntries] = cell;
+        entryNext[numEntries] = heads[distance];
+        heads[distance] = numEntries++;
+    }
+
+    /* Check if an obstacle of the given type can be removed in this field's search mode, with its tools */
+    private boolean canRemove(char type) {
+        boolean dynamite = mode == SearchMode.FREE && (tools & DYNAMITE) != 0;
+        switch (type) {
+            case '-':
+                return (tools & KEY) != 0 || dynamite;
+            case 't':
+                return mode != SearchMode.SAFE && ((tools & AXE) != 0 || dynamite);
+            case '*':
+                return dynamite;
+            default:
+                return false;
+        }
+    }
+
+    /* Check if an item gives a tool this field's tools lack, that can remove something in its search mode */
+    private boolean givesMissingTool(char item) {
+        int tool = tool(item);
+        return tool != 0 && usefulTools(tools | tool, mode) != tools;
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.ArrayList;
+
+/* The DominanceFilter class finds the states a search can discard because it has already found a state that is at least
+ * as good (see SearchState.dominates). The states are kept by their position, and the direction if it is part of the
+ * key, and a new state is only compared with the states at the same place. A state that isn't dominated takes the
+ * place of the states it dominates itself, and only a few states are kept at each place, so checking stays cheap. */
+class DominanceFilter {
+
+    // The most states kept at one place. States found after that are still checked, but no longer kept
+    private final static int MAX_STATES = 8;
+
+    private LongObjectMap<ArrayList<SearchState>> states = new LongObjectMap<>();
+
+    /* Check if a state is dominated by one found before. If it isn't, it is kept to check the states found after it */
+    boolean isDominated(SearchState state) {
+        long place = state.getKey() & (State.POSITION_BITS | State.DIRECTION_BITS);
+        ArrayList<SearchState> found = states.get(place);
+        if (found == null) {
+            found = new ArrayList<>();
+            states.put(place, found);
+        }
+
+        for (SearchState other : found) {
+            if (other.dominates(state)) {
+                return true;
+            }
+        }
+        found.removeIf(state::dominates);
+        if (found.size() < MAX_STATES) {
+            found.add(state);
+        }
+        return false;
+    }
+
+    /* Forget the states found so far. Needed when the search has dropped states it may have to find again */
+    void clear() {
+        states = new LongObjectMap<>();
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.LinkedList;
+
+/* The FrontierFlood class holds the frontier of the known map (the open land and water tiles that have unseen tiles
+ * around them), and for each search mode a distance field from every cell to the nearest frontier tile. The fields are
+ * found by searching backwards from the whole frontier at once, so they don't depend on where the agent is. When the
+ * map changes, the frontier is only checked again around the changed cells, and the fields are repaired around them
+ * rather than found again (see DistanceField.repair). The agent keeps one for the whole game, and every exploration
+ * tier answers from it: a tier whose field can't reach the agent's position is skipped without searching, and the
+ * others use the field as the heuristic of an A* search to the frontier, or search with jump points in SAFE mode.
+ *
+ * Like DistanceField, the fields assume the agent may find the tools it needs, so they only depend on the map. */
+class FrontierFlood {
+    private final State state;
+    private final boolean[] isFrontier = new boolean[State.mapSize * State.mapSize];
+    private final LinkedList<Tile> frontier = new LinkedList<>();
+    private final DistanceField[] fields = new DistanceField[SearchMode.values().length];
+
+    /* Constructor that finds the frontier of the given state's map, and the fields */
+    FrontierFlood(State state) {
+        this.state = state;
+        for (int y = 0; y < State.mapSize; y++) {
+            for (int x = 0; x < State.mapSize; x++) {
+                if (checkFrontier(x, y)) {
+                    isFrontier[y * State.mapSize + x] = true;
+                    frontier.add(state.getTile(x, y));
+                }
+            }
+        }
+        findFields();
+    }
+
+    /* Bring the frontier and the fields up to date with the given cells of the state's map, that have changed since the
+     * flood was found or last updated */
+    void update(int[] cells, int numCells) {
+        for (int i = 0; i < numCells; i++) {
+            int cell = cells[i];
+            for (DistanceField field : fields) {
+                field.cellChanged(cell);
+            }
+
+            // Only the tiles that can see the changed cell can have become, or stopped being, part of the frontier
+            int cellX = cell % State.mapSize;
+            int cellY = cell / State.mapSize;
+            for (int y = Math.max(cellY - 2, 2); y <= Math.min(cellY + 2, State.mapSize - 3); y++) {
+                for (int x = Math.max(cellX - 2, 2); x <= Math.min(cellX + 2, State.mapSize - 3); x++) {
+                    boolean frontierTile = checkFrontier(x, y);
+                    if (frontierTile != isFrontier[y * State.mapSize + x]) {
+                        setFrontier(x, y, frontierTile);
+                    }
+                }
+            }
+        }
+
+        for (DistanceField field : fields) {
+            field.repair();
+        }
+    }
+
+    /* Find the field of every search mode. They are found here and repaired in update, on the agent's thread before the
+     * searches of a move are started, and not when first needed, as the exploration tiers read them from several
+     * threads at once (see PlanPortfolio) */
+    private void findFields() {
+        for (SearchMode mode : SearchMode.values()) {
+            fields[mode.ordinal()] = new DistanceField(state, frontier, mode, null);
+        }
+    }
+
+    /* Check if the tile at the given position is open land or water with unseen tiles around it */
+    private boolean checkFrontier(int x, int y) {
+        char type = state.getType(x, y);
+        return (type == ' ' || type == '~') && state.numUnseenTiles(x, y) > 0;
+    }
+
+    /* Add the tile at the given position to the frontier, or remove it */
+    private void setFrontier(int x, int y, boolean frontierTile) {
+        int cell = y * State.mapSize + x;
+        isFrontier[cell] = frontierTile;
+        if (frontierTile) {
+            frontier.add(state.getTile(x, y));
+        } else {
+            frontier.removeIf(tile -> tile.getX() == x && tile.getY() == y);
+        }
+        for (DistanceField field : fields) {
+            field.setTarget(cell, frontierTile);
+        }
+    }
+
+    /* Get the tiles with unseen tiles around them */
+    LinkedList<Tile> getFrontier() {
+        return frontier;
+    }
+
+    /* Get the distance field to the frontier for the given search mode */
+    DistanceField getField(SearchMode mode) {
+        return fields[mode.ordinal()];
+    }
+
+    /* Check if the frontier may be reachable from the given position in the given search mode. If not, there is no
+     * point in searching for a way to it */
+    boolean canReach(int x, int y, SearchMode mode) {
+        return !frontier.isEmpty() && getField(mode).get(x, y) != DistanceField.UNREACHABLE;
+    }
+
+    /* Find the cheapest path from the agent's state to a frontier tile, with A* search using the field of the mode as
+     * the heuristic. In SAFE mode with jump points, uniform cost search with jump points is used instead, as it
+     * expands fewer states there (see SearchOptions.jumpPoints) */
+    LinkedList<Character> explore(Agent agent, SearchMode mode, SearchOptions options) throws NoPathFoundException {
+        if (!canReach(agent.posX, agent.posY, mode)) {
+            throw new NoPathFoundException("No unseen tiles can be reached");
+        }
+        if (mode == SearchMode.SAFE && options.jumpPoints) {
+            return Search.UCS(agent, mode, options);
+        }
+        options.distances = getField(mode);
+        return Search.AStar(agent, frontier, mode, options);
+    }
+}
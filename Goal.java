@@ -0,0 +1,10 @@
+/* The goals the agent plans for, in the order it tries them. A goal earlier in the list has a higher priority. Used to
+ * decide if a plan should be given up for a goal that has become possible while it was followed */
+enum Goal {
+    HOME,                   // Get back to the start with the treasure
+    SAFE_EXPLORATION,       // Explore without chopping trees, blowing up tiles or going between water and land
+    TREASURE,               // Pick up a treasure the agent knows about
+    ITEM,                   // Pick up a key, axe or dynamite the agent knows about
+    MODERATE_EXPLORATION,   // Explore, chopping trees and using the raft
+    EXPLORATION             // Explore with all actions allowed
+}
@@ -0,0 +1,100 @@
+/* The IndexedHeap class is a binary min heap of SearchStates. Every state in the heap stores its own index in the heap
+ * array, so a state can be found and moved in logarithmic time when a cheaper path to it is found, instead of having
+ * to iterate through the whole heap like with java.util.PriorityQueue. */
+class IndexedHeap implements OpenList {
+    private SearchState[] heap = new SearchState[1024];
+    private int size = 0;
+
+    /* Add a state to the heap */
+    public void add(SearchState state) {
+        if (size == heap.length) {
+            SearchState[] newHeap = new SearchState[heap.length * 2];
+            System.arraycopy(heap, 0, newHeap, 0, size);
+            heap = newHeap;
+        }
+        heap[size] = state;
+        state.openIndex = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /* Remove and return the state with the lowest fCost */
+    public SearchState poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        SearchState first = heap[0];
+        size--;
+        if (size > 0) {
+            place(heap[size], 0);
+            siftDown(0);
+        }
+        heap[size] = null;
+        first.openIndex = -1;
+        return first;
+    }
+
+    /* Put the new state in the old state's place, and move it up to its correct position */
+    public void decreaseKey(SearchState oldState, SearchState newState) {
+        int index = oldState.openIndex;
+        if (index < 0 || heap[index] != oldState) {
+            throw new IllegalStateException("State to replace is not in the heap");
+        }
+
+        oldState.openIndex = -1;
+        place(newState, index);
+        siftUp(index);
+    }
+
+    /* Check if the heap is empty */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /* Get the number of states in the heap */
+    public int size() {
+        return size;
+    }
+
+    /* Move the state at the given index up, until its parent is not larger than it */
+    private void siftUp(int index) {
+        SearchState state = heap[index];
+
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].compareTo(state) <= 0) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(state, index);
+    }
+
+    /* Move the state at the given index down, until none of its children are smaller than it */
+    private void siftDown(int index) {
+        SearchState state = heap[index];
+        int half = size / 2;
+
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].compareTo(heap[child]) < 0) {
+                child = right;
+            }
+            if (state.compareTo(heap[child]) <= 0) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(state, index);
+    }
+
+    /* Helper method that puts a state in the heap array, and updates the index stored in the state */
+    private void place(SearchState state, int index) {
+        heap[index] = state;
+        state.openIndex = index;
+    }
+}
@@ -0,0 +1,9 @@
+class InvalidTypeException extends RuntimeException {
+    InvalidTypeException() {
+        super();
+    }
+
+    InvalidTypeException(String message) {
+        super(message);
+    }
+}
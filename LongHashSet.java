@@ -0,0 +1,119 @@
+/* The LongHashSet class is a set of primitive long values, stored in an open addressing hash table with linear
+ * probing. It is used for the closed states of a search, where every state is identified by its packed key, so the
+ * set does not need to keep the states themselves (and their maps) alive. */
+class LongHashSet {
+    private final static long EMPTY = 0; // Zero marks an empty slot, and is stored separately in hasZero
+
+    private long[] keys = new long[1024];
+    private int size = 0;
+    private boolean hasZero = false;
+
+    /* Add a value to the set. Returns true if it was not already in the set */
+    boolean add(long key) {
+        if (key == EMPTY) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+
+        int mask = keys.length - 1;
+        int index = LongHashSet.mix(key) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        size++;
+
+        // Keep the load factor below one half, so the probe sequences stay short
+        if (size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /* Check if a value is in the set */
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return hasZero;
+        }
+
+        int mask = keys.length - 1;
+        int index = LongHashSet.mix(key) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /* Remove a value from the set. Returns true if it was in the set */
+    boolean remove(long key) {
+        if (key == EMPTY) {
+            boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+
+        int mask = keys.length - 1;
+        int index = LongHashSet.mix(key) & mask;
+        while (keys[index] != key) {
+            if (keys[index] == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        /* Shift the following values of the probe sequence back into the hole, so that lookups never stop early
+         * at an empty slot that used to hold a value */
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY) {
+                break;
+            }
+            int home = LongHashSet.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                index = next;
+            }
+        }
+        keys[index] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /* Get the number of values in the set */
+    int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    /* Double the size of the table, and insert all the values again */
+    private void grow() {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                int index = LongHashSet.mix(key) & mask;
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    /* Spread the bits of a key, so that keys that only differ in the high bits end up in different slots */
+    static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
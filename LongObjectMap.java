@@ -0,0 +1,116 @@
+/* The LongObjectMap class maps primitive long keys to objects, using an open addressing hash table with linear
+ * probing. It is used to find the open state with a given packed key, without boxing the key or relying on the
+ * (colliding) int hashCode of the states. */
+class LongObjectMap<V> {
+    private final static long EMPTY = 0; // Zero marks an empty slot, and is stored separately in zeroValue
+
+    private long[] keys = new long[1024];
+    private Object[] values = new Object[1024];
+    private int size = 0;
+    private V zeroValue = null;
+
+    /* Get the value stored for a key, or null if there is none */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        if (key == EMPTY) {
+            return zeroValue;
+        }
+
+        int index = findSlot(key);
+        return keys[index] == EMPTY ? null : (V) values[index];
+    }
+
+    /* Store a value for a key, replacing any previous value */
+    void put(long key, V value) {
+        if (key == EMPTY) {
+            if (zeroValue == null) {
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int index = findSlot(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+
+        // Keep the load factor below one half, so the probe sequences stay short
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /* Remove the value stored for a key, if any */
+    void remove(long key) {
+        if (key == EMPTY) {
+            if (zeroValue != null) {
+                size--;
+            }
+            zeroValue = null;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int index = findSlot(key);
+        if (keys[index] == EMPTY) {
+            return;
+        }
+
+        /* Shift the following entries of the probe sequence back into the hole, so that lookups never stop early
+         * at an empty slot that used to hold a key */
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY) {
+                break;
+            }
+            int home = LongHashSet.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+        keys[index] = EMPTY;
+        values[index] = null;
+        size--;
+    }
+
+    /* Get the number of keys in the map */
+    int size() {
+        return size;
+    }
+
+    /* Find the slot that holds the key, or the empty slot where it should be inserted */
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int index = LongHashSet.mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /* Double the size of the table, and insert all the entries again */
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = LongHashSet.mix(oldKeys[i]) & mask;
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
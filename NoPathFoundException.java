@@ -0,0 +1,9 @@
+class NoPathFoundException extends RuntimeException {
+    NoPathFoundException() {
+        super();
+    }
+
+    NoPathFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/* The ObjectSet class is an immutable set of the objects (items, treasures or trees) a state knows about, indexed by
+ * their cell of the map (y * mapSize + x). The cells are kept in a sorted array, with the packed type and item of each
+ * object (see Terrain) beside it, so finding an object is a binary search and the whole set is two small arrays.
+ * Adding or removing an object gives a new set, so a search state shares the sets of the state it was expanded from
+ * until it picks something up itself, instead of copying every known tree and item. The tiles are made when the set is
+ * iterated. */
+class ObjectSet implements Iterable<Tile> {
+
+    final static ObjectSet EMPTY = new ObjectSet(new int[0], new byte[0]);
+
+    private final int[] cells;
+    private final byte[] objects;
+
+    private ObjectSet(int[] cells, byte[] objects) {
+        this.cells = cells;
+        this.objects = objects;
+    }
+
+    /* Get the set with the object of the given tile added to this one, or this set if it already has an object there */
+    ObjectSet with(Tile tile) {
+        int cell = tile.getY() * State.mapSize + tile.getX();
+        int index = Arrays.binarySearch(cells, cell);
+        if (index >= 0) {
+            return this;
+        }
+
+        int insertAt = -index - 1;
+        int[] newCells = new int[cells.length + 1];
+        byte[] newObjects = new byte[cells.length + 1];
+        System.arraycopy(cells, 0, newCells, 0, insertAt);
+        System.arraycopy(objects, 0, newObjects, 0, insertAt);
+        newCells[insertAt] = cell;
+        newObjects[insertAt] = Terrain.encode(tile.getType(), tile.getItem());
+        System.arraycopy(cells, insertAt, newCells, insertAt + 1, cells.length - insertAt);
+        System.arraycopy(objects, insertAt, newObjects, insertAt + 1, cells.length - insertAt);
+        return new ObjectSet(newCells, newObjects);
+    }
+
+    /* Get the set with the object at the given cell removed from this one, or null if there is no object there */
+    ObjectSet without(int cell) {
+        int index = Arrays.binarySearch(cells, cell);
+        if (index < 0) {
+            return null;
+        }
+
+        int[] newCells = new int[cells.length - 1];
+        byte[] newObjects = new byte[cells.length - 1];
+        System.arraycopy(cells, 0, newCells, 0, index);
+        System.arraycopy(objects, 0, newObjects, 0, index);
+        System.arraycopy(cells, index + 1, newCells, index, cells.length - index - 1);
+        System.arraycopy(objects, index + 1, newObjects, index, cells.length - index - 1);
+        return new ObjectSet(newCells, newObjects);
+    }
+
+    /* Check if there is an object at the given cell */
+    boolean contains(int cell) {
+        return Arrays.binarySearch(cells, cell) >= 0;
+    }
+
+    /* Get the number of objects in the set */
+    int size() {
+        return cells.length;
+    }
+
+    /* Check if the set has no objects */
+    boolean isEmpty() {
+        return cells.length == 0;
+    }
+
+    /* Get the tile of the object with the given index, in increasing order of cells */
+    Tile get(int index) {
+        int cell = cells[index];
+        return new Tile(Terrain.type(objects[index]), Terrain.item(objects[index]), cell % State.mapSize,
+                cell / State.mapSize);
+    }
+
+    /* Get the tiles of the objects as a list, for the searches that take their targets as one */
+    LinkedList<Tile> toList() {
+        LinkedList<Tile> tiles = new LinkedList<>();
+        for (Tile tile : this) {
+            tiles.add(tile);
+        }
+        return tiles;
+    }
+
+    @Override
+    public Iterator<Tile> iterator() {
+        return new Iterator<Tile>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < cells.length;
+            }
+
+            @Override
+            public Tile next() {
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
@@ -0,0 +1,20 @@
+/* The OpenList interface describes the set of open states in a search, i.e. the states that have been found but not
+ * yet expanded. Implementations keep the states ordered so that the state with the lowest fCost is expanded first,
+ * and support replacing a state with a cheaper path to the same state without searching through the whole list. */
+interface OpenList {
+
+    /* Add a state to the open list */
+    void add(SearchState state);
+
+    /* Remove and return the state with the lowest fCost */
+    SearchState poll();
+
+    /* Replace a state that is already in the open list with a cheaper path to the same state */
+    void decreaseKey(SearchState oldState, SearchState newState);
+
+    /* Check if there are any states left in the open list */
+    boolean isEmpty();
+
+    /* Get the number of states in the open list */
+    int size();
+}
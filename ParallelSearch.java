@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* The ParallelSearch class runs one A* or UCS search on several threads, with hash distributed A* (HDA*). Every state
+ * is owned by one thread, picked from the hash of its key, and each thread keeps the open and closed states it owns in
+ * its own open list and hash maps. A thread expands the best of its own open states, and sends each new state to the
+ * inbox of its owner, a lock free queue.
+ *
+ * A state can be found again through a cheaper path after it has been expanded, and is then opened again. The cheapest
+ * goal found so far is kept, and states whose fCost is not below its cost are dropped, which relies on the heuristic
+ * never overestimating (see SearchState.setHeuristic), so the search is always run with a weight of one. The search
+ * ends when no thread has an open state cheaper than the best goal and no state is on its way to a thread. Benchmark
+ * -parallel checks that the plans cost the same as those of the sequential search.
+ *
+ * Only the benchmarks use it. The agent searches with one thread per goal instead (see PlanPortfolio), and how this
+ * search scales with the number of cores has not been measured. */
+class ParallelSearch {
+    private final LinkedList<Tile> targets;
+    private final String algorithm;
+    private final SearchOptions options;
+    private final SearchState root;
+
+    private final List<ConcurrentLinkedQueue<SearchState>> inboxes;
+
+    /* The number of threads that are still searching, plus the number of states sent to an inbox that have not been
+     * taken out of it. The search is over once it reaches zero, as only searching threads send states */
+    private final AtomicLong work = new AtomicLong();
+    private final AtomicLong expanded = new AtomicLong();
+    private volatile boolean done = false;
+    private volatile boolean outOfTime = false;
+
+    // The cheapest goal found so far
+    private volatile SearchState best = null;
+    private volatile int bestCost = Integer.MAX_VALUE;
+
+    /* Constructor that sets up a search from the agent's state, split between the number of threads in the options */
+    ParallelSearch(Agent agent, LinkedList<Tile> targets, String algorithm, SearchMode mode, SearchOptions options) {
+        this.targets = targets;
+        this.algorithm = algorithm;
+        this.options = options;
+        this.root = new SearchState(agent, targets, mode, options);
+        root.setWeight(1); // A weighted fCost is not a lower bound, so it can't be used to drop states
+
+        inboxes = new ArrayList<>(options.threads);
+        for (int i = 0; i < options.threads; i++) {
+            inboxes.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /* Search for the cheapest path, and return it. The calling thread is one of the searching threads */
+    LinkedList<Character> run() throws NoPathFoundException {
+        if (root.getHeuristic() == DistanceField.UNREACHABLE) {
+            throw new NoPathFoundException("No way to any of the targets");
+        }
+
+        // Every thread starts out searching, and the first state is on its way to its owner
+        work.set(inboxes.size() + 1);
+        inboxes.get(owner(root.getKey())).add(root);
+
+        Thread[] threads = new Thread[inboxes.size() - 1];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i + 1;
+            threads[i] = new Thread(() -> search(index), "ParallelSearch");
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        search(0);
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (options.cancelled != null && options.cancelled.get()) {
+            throw new NoPathFoundException("The search was cancelled");
+        }
+        if (outOfTime) {
+            throw new NoPathFoundException("Ran out of time"); // The best goal found may not be the cheapest
+        }
+        if (best == null) {
+            throw new NoPathFoundException("Exhausted all possibilities");
+        }
+        return best.getPathHere();
+    }
+
+    /* Get the number of states that were expanded by all the threads */
+    long getExpanded() {
+        return expanded.get();
+    }
+
+    /* Search with the states owned by the thread with the given index, until the whole search is over */
+    private void search(int index) {
+        OpenList open = new BucketQueue();
+        LongObjectMap<SearchState> openH = new LongObjectMap<>();
+        LongObjectMap<SearchState> closed = new LongObjectMap<>(); // The expanded states, to compare with new paths
+        boolean searching = true;
+
+        while (!done) {
+            if (options.cancelled != null && options.cancelled.get()) {
+                done = true;
+                break;
+            }
+            if (Search.pastDeadline(options)) {
+                outOfTime = true;
+                done = true;
+                break;
+            }
+
+            // Take in the states the other threads have found. A thread that had stopped searching starts again
+            SearchState received;
+            while ((received = inboxes.get(index).poll()) != null) {
+                if (searching) {
+                    work.decrementAndGet();
+                } else {
+                    searching = true; // The state's count in work is now the count of this thread
+                }
+                receive(received, open, openH, closed);
+            }
+
+            // Expand the best open state, unless it can't lead to a cheaper goal than the best one found
+            SearchState current = open.isEmpty() ? null : open.poll();
+            if (current != null && current.getFCost() < bestCost) {
+                openH.remove(current.getKey());
+                closed.put(current.getKey(), current);
+                expanded.incrementAndGet();
+
+                if (Search.isGoal(current, targets, algorithm)) {
+                    foundGoal(current);
+                    continue;
+                }
+                for (SearchState newState : current.expandState()) {
+                    if (newState.getHeuristic() == DistanceField.UNREACHABLE || newState.getFCost() >= bestCost) {
+                        continue;
+                    }
+                    int owner = owner(newState.getKey());
+                    if (owner == index) {
+                        receive(newState, open, openH, closed);
+                    } else {
+                        work.incrementAndGet();
+                        inboxes.get(owner).add(newState);
+                    }
+                }
+                continue;
+            }
+
+            // The best goal found is at least as cheap as every open state, so none of them are needed any more
+            if (current != null) {
+                open = new BucketQueue();
+                openH = new LongObjectMap<>();
+            }
+            if (searching) {
+                searching = false;
+                if (work.decrementAndGet() == 0) {
+                    done = true;
+                }
+            } else if (work.get() == 0) {
+                done = true;
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /* Add a state owned by this thread to its open states, unless the same state is already known at the same or a
+     * lower cost. A state that has been expanded is opened again if the new path to it is cheaper */
+    private void receive(SearchState state, OpenList open, LongObjectMap<SearchState> openH,
+                         LongObjectMap<SearchState> closed) {
+        long key = state.getKey();
+        SearchState closedState = closed.get(key);
+        if (closedState != null) {
+            if (closedState.getFCost() <= state.getFCost()) {
+                return;
+            }
+            closed.remove(key);
+        }
+
+        SearchState openState = openH.get(key);
+        if (openState != null) {
+            if (state.getFCost() < openState.getFCost()) {
+                openH.put(key, state);
+                open.decreaseKey(openState, state);
+            }
+        } else {
+            open.add(state);
+            openH.put(key, state);
+        }
+    }
+
+    /* Keep the goal if it is cheaper than the best one found so far */
+    private synchronized void foundGoal(SearchState goal) {
+        if (goal.getFCost() < bestCost) {
+            best = goal;
+            bestCost = goal.getFCost();
+        }
+    }
+
+    /* Get the index of the thread that owns the states with the given key. The key is mixed with other bits than
+     * the hash tables use, so the keys a thread owns are still spread over its tables */
+    private int owner(long key) {
+        return (int) (((key * 0x9E3779B97F4A7C15L) >>> 33) % inboxes.size());
+    }
+}
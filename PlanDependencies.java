@@ -0,0 +1,121 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/* The PlanDependencies class records what a plan of the agent depends on, so the agent can keep following it after a
+ * new view of the map instead of planning again, and only gives it up when something it relies on has changed. A plan
+ * depends on:
+ *
+ * - The cells it moves into or removes an obstacle from, which must not change from what they were when it was made
+ * - The items it uses, which the agent must hold when the action is performed
+ * - The frontier tile it explores towards (if it leads to one), which must still have unseen tiles around it
+ * - No goal of a higher priority having become possible: a treasure picked up, or a treasure or item seen while
+ *   exploring or going for something of a lower priority
+ *
+ * The cells are found by following the plan's actions from the agent's position when the plan is made. */
+class PlanDependencies {
+
+    // The change in cell index when moving one step in each direction (east, north, west, south)
+    private final static int[] STEPS = {1, -State.mapSize, -1, State.mapSize};
+
+    private final Goal goal;
+    private final int[] cells; // Sorted, so the changed cells can be looked up quickly
+    private final byte[] cellsWhenPlanned;
+    private final int frontierCell; // The frontier tile the plan leads to, or -1 if it doesn't end at one
+
+    /* Constructor that finds the dependencies of a plan made for the given goal from the agent's current state */
+    PlanDependencies(State agent, LinkedList<Character> plan, Goal goal) {
+        this.goal = goal;
+
+        int cell = agent.posY * State.mapSize + agent.posX;
+        int direction = agent.direction;
+        int[] used = new int[plan.size()];
+        int numUsed = 0;
+        for (char action : plan) {
+            switch (action) {
+                case 'l':
+                    direction = (direction + 1) % 4;
+                    break;
+                case 'r':
+                    direction = (direction + 3) % 4;
+                    break;
+                case 'f':
+                    cell += STEPS[direction];
+                    used[numUsed++] = cell;
+                    break;
+                default: // Chopping, unlocking and blowing up act on the cell in front of the agent
+                    used[numUsed++] = cell + STEPS[direction];
+                    break;
+            }
+        }
+
+        cells = Arrays.stream(used, 0, numUsed).distinct().sorted().toArray();
+        cellsWhenPlanned = new byte[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            cellsWhenPlanned[i] = agent.terrain[cells[i]];
+        }
+        int endX = cell % State.mapSize;
+        int endY = cell / State.mapSize;
+        boolean exploring = goal == Goal.SAFE_EXPLORATION || goal == Goal.MODERATE_EXPLORATION
+                || goal == Goal.EXPLORATION;
+        frontierCell = exploring && agent.numUnseenTiles(endX, endY) > 0 ? cell : -1;
+    }
+
+    /* Check if the rest of the plan is still worth following, before its next action is performed. The cells from
+     * changedCells[from] to changedCells[to - 1] are the ones the last view of the map changed */
+    boolean isValid(State agent, char nextAction, int[] changedCells, int from, int to) {
+        if (agent.hasTreasure && goal != Goal.HOME) {
+            return false;
+        }
+
+        for (int i = from; i < to; i++) {
+            int cell = changedCells[i];
+            int index = Arrays.binarySearch(cells, cell);
+            if (index >= 0 && agent.terrain[cell] != cellsWhenPlanned[index]) {
+                return false;
+            }
+
+            // A newly seen treasure or item may be worth more than what the plan is for
+            switch (Terrain.item(agent.terrain[cell])) {
+                case '$':
+                    if (goal.compareTo(Goal.TREASURE) > 0) {
+                        return false;
+                    }
+                    break;
+                case 'a':
+                case 'k':
+                case 'd':
+                    if (goal.compareTo(Goal.ITEM) > 0) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+
+        if (frontierCell != -1
+                && agent.numUnseenTiles(frontierCell % State.mapSize, frontierCell / State.mapSize) == 0) {
+            return false; // Everything around the tile has been seen on the way, so there is nothing left to explore
+        }
+        return canPerform(agent, nextAction);
+    }
+
+    /* Check if the agent is able to perform the given action in its current state */
+    private static boolean canPerform(State agent, char action) {
+        Position next = agent.getNextPos();
+        char nextType = agent.getType(next.getX(), next.getY());
+        switch (action) {
+            case 'f':
+                if (nextType == '~' && agent.getTypeAtPos() != '~') {
+                    return agent.hasRaft;
+                }
+                return nextType == ' ' || nextType == '~';
+            case 'c':
+                return agent.hasAxe && nextType == 't';
+            case 'u':
+                return agent.hasKey && nextType == '-';
+            case 'b':
+                return agent.dynamites > 0 && (nextType == '*' || nextType == '-' || nextType == 't');
+            default:
+                return true;
+        }
+    }
+}
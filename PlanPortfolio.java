@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/* The PlanPortfolio class plans for several goals at once, and picks the plan for the goal of the highest priority that
+ * has one. The searches for the goals are started together on a fixed pool of threads, so a goal that takes long to
+ * fail no longer holds up the ones after it. The results are then taken in priority order: the first plan found is
+ * used as soon as every goal before it has failed, and the searches for the goals after it are cancelled.
+ *
+ * The searches read the agent's state itself rather than a copy of it, which is safe because nothing changes it while
+ * they run. The agent only changes its map, position, inventory, known objects, connectivity index and frontier flood
+ * on its own thread in get_action, before the portfolio is run and after run returns. Submitting a search to the pool
+ * makes the changes before it visible to the search, and run waits for every search to stop, also the cancelled ones
+ * and when one of them fails, so the changes after it can't be seen by a search either. The only things the searches
+ * build in shared objects are the distance fields for the tools of a state, which DistanceField builds under a lock.
+ * The frontier flood finds its fields before the searches start for the same reason.
+ *
+ * The searches may share a time budget. Each search gets a slice of what is left of it when it starts, so a search
+ * that is done early leaves its time to the ones after it. When there are fewer threads than goals, the time left is
+ * split between the searches the thread may still have to run, and otherwise every search gets all of it. A search
+ * that runs out of time returns a partial plan (see SearchOptions.partialPlan) or gives up. A goal that was given up
+ * for lack of time may still have a plan, so the plan for a goal after it is not used straight away if it chops down or
+ * blows up anything, as that may destroy what the plan for the goal given up needed (like FREE exploration blowing up
+ * a wall on the way to the treasure). The goals given up are then searched for once more, with a new budget, and the
+ * plan for the first of them that has one is used instead. Only if none has is the plan for the goal after them used.
+ * Searching again without a time limit could take minutes, or run out of memory, on a large map. */
+class PlanPortfolio {
+
+    /* A search for a plan for one goal, with the given options */
+    interface Planner {
+        LinkedList<Character> plan(SearchOptions options) throws NoPathFoundException;
+    }
+
+    private final static int THREADS = Math.min(Goal.values().length, Runtime.getRuntime().availableProcessors());
+
+    // Daemon threads, so the pool does not keep the program running after the game is over
+    private final static ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+            runnable -> {
+                Thread thread = new Thread(runnable, "PlanPortfolio");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Supplier<SearchOptions> options;
+    private final long budget; // Nanoseconds, or 0 for no limit
+    private final boolean logPrint;
+    private final ArrayList<Goal> goals = new ArrayList<>();
+    private final ArrayList<Planner> planners = new ArrayList<>();
+
+    private Goal goal = null;
+
+    /* Constructor that makes the options of each search with the given supplier, and gives the searches a time budget
+     * in nanoseconds to share (0 for no limit) */
+    PlanPortfolio(Supplier<SearchOptions> options, long budget, boolean logPrint) {
+        this.options = options;
+        this.budget = budget;
+        this.logPrint = logPrint;
+    }
+
+    /* Add a goal to plan for. Goals must be added in priority order, highest first */
+    void add(Goal goal, Planner planner) {
+        goals.add(goal);
+        planners.add(planner);
+    }
+
+    /* Get the goal of the plan returned by run, or null if no plan was found */
+    Goal getGoal() {
+        return goal;
+    }
+
+    /* Search for a plan for every goal, and return the plan for the goal of the highest priority that has one */
+    LinkedList<Character> run() throws NoPathFoundException {
+        ArrayList<AtomicBoolean> cancelled = new ArrayList<>();
+        for (int i = 0; i < planners.size(); i++) {
+            cancelled.add(new AtomicBoolean(false));
+        }
+
+        long end = System.nanoTime() + budget;
+        AtomicInteger started = new AtomicInteger();
+        boolean[] outOfTime = new boolean[planners.size()]; // Set before the search's future is done
+
+        ArrayList<Future<LinkedList<Character>>> futures = new ArrayList<>();
+        for (int i = 0; i < planners.size(); i++) {
+            Planner planner = planners.get(i);
+            SearchOptions plannerOptions = options.get();
+            plannerOptions.cancelled = cancelled.get(i);
+            int index = i;
+            futures.add(executor.submit(() -> {
+                int remaining = planners.size() - started.getAndIncrement();
+                if (plannerOptions.cancelled.get()) {
+                    throw new NoPathFoundException("The search was cancelled");
+                }
+                if (budget > 0) {
+                    long now = System.nanoTime();
+                    int searchesLeft = (remaining + THREADS - 1) / THREADS; // On this thread, including this one
+                    plannerOptions.deadline = now + Math.max(end - now, 0) / searchesLeft;
+                }
+                LinkedList<Character> plan;
+                try {
+                    plan = planner.plan(plannerOptions);
+                } catch (NoPathFoundException e) {
+                    outOfTime[index] = Search.pastDeadline(plannerOptions);
+                    throw e;
+                }
+
+                // The goals after this one can't be used any more, so they are cancelled straight away
+                for (int j = index + 1; j < cancelled.size(); j++) {
+                    cancelled.get(j).set(true);
+                }
+                return plan;
+            }));
+        }
+
+        LinkedList<Character> plan = null;
+        int planIndex = -1;
+        RuntimeException failure = null;
+        goal = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                LinkedList<Character> result = futures.get(i).get(); // Also waits for the cancelled searches to stop
+                if (plan == null) {
+                    plan = result;
+                    planIndex = i;
+                    goal = goals.get(i);
+                    if (logPrint) System.out.println("Found plan for " + goal + ", executing: " + plan.peekFirst());
+                }
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof NoPathFoundException)) {
+                    failure = new RuntimeException(e.getCause()); // Thrown once the other searches have stopped
+                    continue;
+                }
+                if (logPrint) System.out.println("Could not plan for " + goals.get(i) + ": " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        if (plan == null) {
+            throw new NoPathFoundException("No plan for any goal");
+        }
+
+        // The plan must not destroy anything that a goal before it, that ran out of time, may need
+        if (plan.contains('b') || plan.contains('c')) {
+            for (int i = 0; i < planIndex; i++) {
+                if (outOfTime[i]) {
+                    return searchAgain(planIndex, outOfTime, plan);
+                }
+            }
+        }
+        return plan;
+    }
+
+    /* Search once more for the goals before the given one that ran out of time, one after another with a new budget,
+     * and return the plan for the first of them that has one, or the given plan if none has */
+    private LinkedList<Character> searchAgain(int planIndex, boolean[] outOfTime, LinkedList<Character> plan) {
+        long end = System.nanoTime() + budget;
+        int remaining = 0;
+        for (int i = 0; i < planIndex; i++) {
+            remaining += outOfTime[i] ? 1 : 0;
+        }
+
+        for (int i = 0; i < planIndex; i++) {
+            if (!outOfTime[i]) {
+                continue;
+            }
+            SearchOptions plannerOptions = options.get();
+            long now = System.nanoTime();
+            plannerOptions.deadline = now + Math.max(end - now, 0) / remaining--;
+            try {
+                LinkedList<Character> retried = planners.get(i).plan(plannerOptions);
+                goal = goals.get(i);
+                if (logPrint) System.out.println("Found plan for " + goal + " when searching again");
+                return retried;
+            } catch (NoPathFoundException e) {
+                if (logPrint) System.out.println("Could not plan for " + goals.get(i) + " again: " + e.getMessage());
+            }
+        }
+        return plan;
+    }
+}
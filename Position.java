@@ -0,0 +1,17 @@
+/* Helper class to be able to return two values x and y from a function */
+class Position {
+    private int x, y;
+
+    Position(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    int getX() {
+        return this.x;
+    }
+
+    int getY() {
+        return this.y;
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+/* The Region class describes one region of a RegionMap: its type, the cells it covers, the items in it, and the
+ * regions it borders */
+class Region {
+    final int id;
+    final char type; // ' ' for land, '~' for water, or the type of the obstacle
+    final ArrayList<Tile> items = new ArrayList<>();
+    final LinkedHashSet<Region> neighbours = new LinkedHashSet<>();
+
+    private int[] cells = new int[1]; // Cell indexes (y * mapSize + x) of the cells in the region
+    private int size = 0;
+
+    Region(int id, char type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    /* Check if this region is an obstacle, that has to be removed before the agent can move into it */
+    boolean isObstacle() {
+        return type != ' ' && type != '~';
+    }
+
+    /* Add a cell to the region */
+    void addCell(int cell) {
+        if (size == cells.length) {
+            cells = java.util.Arrays.copyOf(cells, size * 2);
+        }
+        cells[size++] = cell;
+    }
+
+    /* Get the cell index of the first cell of this region. For an obstacle this is the only cell of the region */
+    int getCell() {
+        return cells[0];
+    }
+
+    /* Get the tile of the first cell of this region from the map of the given state. For an obstacle this is the only
+     * cell of the region */
+    Tile getTile(State state) {
+        return state.getTile(cells[0] % State.mapSize, cells[0] / State.mapSize);
+    }
+
+    /* Mark all the cells of this region in the given array, that is indexed by cell index */
+    void markCells(boolean[] mask) {
+        for (int i = 0; i < size; i++) {
+            mask[cells[i]] = true;
+        }
+    }
+
+    /* Check if any of the given tiles are in this region */
+    boolean containsAny(Iterable<Tile> tiles, RegionMap regionMap) {
+        for (Tile tile : tiles) {
+            if (regionMap.getRegion(tile.getX(), tile.getY()) == this) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+
+/* The RegionMap class splits the known map into regions, that the agent can move within without removing anything or
+ * going between land and water. Every connected area of land or water is one region, and every obstacle that can be
+ * removed (a tree, door or wall) is a region of its own, so the regions are separated by the obstacles and the water
+ * edges. The map is only split when the RegionMap is created, so it describes the map as it was at that time */
+class RegionMap {
+    private final int[] regionAt = new int[State.mapSize * State.mapSize]; // Region id of each cell, or -1 if none
+    private final ArrayList<Region> regions = new ArrayList<>();
+
+    // The change in cell index when moving one step in each direction (east, north, west, south)
+    private final static int[] STEPS = {1, -State.mapSize, -1, State.mapSize};
+
+    /* Constructor that splits the map known in the given state into regions */
+    RegionMap(State state) {
+        int[] stack = new int[regionAt.length];
+        java.util.Arrays.fill(regionAt, -1);
+
+        for (int cell = 0; cell < regionAt.length; cell++) {
+            int x = cell % State.mapSize;
+            int y = cell / State.mapSize;
+            char type = state.getType(x, y);
+            if (regionAt[cell] != -1 || type == 0 || type == '.') {
+                continue;
+            }
+
+            Region region = new Region(regions.size(), type);
+            regions.add(region);
+            regionAt[cell] = region.id;
+
+            // Flood fill the land or water connected to this cell. Obstacles are always regions of a single cell
+            int stackSize = 0;
+            stack[stackSize++] = cell;
+            while (stackSize > 0) {
+                int current = stack[--stackSize];
+                int currentX = current % State.mapSize;
+                int currentY = current / State.mapSize;
+                region.addCell(current);
+                if (state.getItem(currentX, currentY) != '0') {
+                    region.items.add(state.getTile(currentX, currentY));
+                }
+                if (region.isObstacle()) {
+                    break;
+                }
+
+                for (int step : STEPS) {
+                    int next = current + step;
+                    if (next < 0 || next >= regionAt.length || regionAt[next] != -1) {
+                        continue;
+                    }
+                    if (state.getType(next % State.mapSize, next / State.mapSize) == type) {
+                        regionAt[next] = region.id;
+                        stack[stackSize++] = next;
+                    }
+                }
+            }
+        }
+
+        // Link the regions that border each other
+        for (int cell = 0; cell < regionAt.length; cell++) {
+            if (regionAt[cell] == -1) {
+                continue;
+            }
+            for (int step : new int[]{1, State.mapSize}) {
+                int next = cell + step;
+                if (next < regionAt.length && regionAt[next] != -1 && regionAt[next] != regionAt[cell]) {
+                    Region region = regions.get(regionAt[cell]);
+                    Region neighbour = regions.get(regionAt[next]);
+                    region.neighbours.add(neighbour);
+                    neighbour.neighbours.add(region);
+                }
+            }
+        }
+    }
+
+    /* Get the region the given position is in, or null if it is not in any region (unseen or off the map) */
+    Region getRegion(int x, int y) {
+        int id = regionAt[y * State.mapSize + x];
+        return id == -1 ? null : regions.get(id);
+    }
+
+    /* Get the number of regions the map was split into */
+    int size() {
+        return regions.size();
+    }
+}
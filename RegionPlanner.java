@@ -0,0 +1,340 @@
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+/* The RegionPlanner class plans paths on large maps in two levels. First the known map is split into regions (see
+ * RegionMap), and a route through the regions to a target is found, keeping track of the items picked up and the
+ * dynamite used along the way. This search is small, as moving around inside a region is free, and it is the only part
+ * of the search that has to decide which obstacles to remove. Then the route is refined with the normal A* search, up to
+ * and including the first obstacle on it. That search is restricted to a corridor made of the regions on the route, so
+ * it never searches through the rest of the map. The agent plans again once it has removed the obstacle, from the map
+ * as it then knows it.
+ *
+ * Routes to the treasure or an item must leave the agent able to get back to the start, so it never uses up its
+ * dynamite or leaves its raft somewhere it can't get away from. Routes to an item may only use dynamite if the agent
+ * has more dynamite, or a new tool, once it is back. Apart from moving around inside the regions for free, the region
+ * level search allows the same actions as the normal search. Its states are first told apart by a short key, that
+ * leaves out most of the obstacles removed on the way, so a route that chopped the only tree may be merged with one
+ * that can still chop it. If that search runs out of routes, it is run again with every removed obstacle in the key,
+ * and if that one runs out of routes too there is no path, unless there were more items than it keeps track of. If it
+ * gives up before it is done, runs out of routes after leaving items out, or the route can't be refined, the normal
+ * search of the whole map is used instead */
+class RegionPlanner {
+
+    // The most region level states that are expanded by one search before giving up
+    private final static int MAX_EXPANDED = 200000;
+
+    // The extra cost of using dynamite when checking that the agent can get back to the start. The way back is only
+    // found to check that there is one, so it uses as little dynamite as possible rather than being short
+    private final static int RETURN_DYNAMITE_COST = 1000;
+
+    // The most items that are tracked by the region level search. More items than this are never picked up by it
+    private final static int MAX_ITEMS = 32;
+
+    private final Agent agent;
+    private final SearchMode mode;
+    private final RegionMap regionMap;
+    private final Tile[] items = new Tile[MAX_ITEMS]; // The known items, numbered so the ones picked up fit in a mask
+    private int numItems = 0;
+    private boolean itemsLeftOut = false; // If there were more items than are kept track of
+
+    /* Constructor that splits the agent's map into regions */
+    private RegionPlanner(Agent agent, SearchMode mode) {
+        this.agent = agent;
+        this.mode = mode;
+        this.regionMap = new RegionMap(agent);
+
+        for (Tile item : agent.knownItems) {
+            if (regionMap.getRegion(item.getX(), item.getY()) != null) {
+                if (numItems < MAX_ITEMS) {
+                    items[numItems++] = item;
+                } else {
+                    itemsLeftOut = true;
+                }
+            }
+        }
+    }
+
+    /* Find a path from the agent's state to one of the targets. Returns the actions leading to the first obstacle on
+     * the route through the regions, or the whole path if there is no obstacle on it */
+    static LinkedList<Character> findPath(Agent agent, LinkedList<Tile> targets, SearchMode mode, SearchOptions options)
+            throws NoPathFoundException {
+        if (targets == null || targets.isEmpty()) {
+            throw new NoPathFoundException("No targets provided");
+        }
+        return new RegionPlanner(agent, mode).plan(targets, options, LegKind.TARGET);
+    }
+
+    /* Find a path from the agent's state to one of the known items. Unlike findPath, the route may only use dynamite if
+     * it is worth it (see the class comment) */
+    static LinkedList<Character> collectItem(Agent agent, SearchMode mode, SearchOptions options)
+            throws NoPathFoundException {
+        return collectItem(agent, agent.knownItems.toList(), mode, options);
+    }
+
+    /* Find a path from the agent's state to one of the given items, that is worth the dynamite used the same way */
+    static LinkedList<Character> collectItem(Agent agent, LinkedList<Tile> items, SearchMode mode,
+                                             SearchOptions options) throws NoPathFoundException {
+        if (items.isEmpty()) {
+            throw new NoPathFoundException("No targets provided");
+        }
+        return new RegionPlanner(agent, mode).plan(items, options, LegKind.ITEM);
+    }
+
+    /* Find a path from the agent's state to a tile with unseen tiles around it, the same goal as Search.UCS has. The
+     * frontier is taken from the given flood, which also tells if it can't be reached at all */
+    static LinkedList<Character> explore(Agent agent, SearchMode mode, SearchOptions options, FrontierFlood flood)
+            throws NoPathFoundException {
+        if (!flood.canReach(agent.posX, agent.posY, mode)) {
+            throw new NoPathFoundException("No unseen tiles can be reached");
+        }
+        return new RegionPlanner(agent, mode).plan(flood.getFrontier(), options, LegKind.FRONTIER);
+    }
+
+    /* Plan a path to one of the targets in two levels. If the normal search has to be used instead, it is uniform cost
+     * search when exploring, and A* search otherwise */
+    private LinkedList<Character> plan(LinkedList<Tile> targets, SearchOptions options, LegKind kind)
+            throws NoPathFoundException {
+        boolean exploring = kind == LegKind.FRONTIER;
+
+        // The targets may not be connected to the agent at all, which is found without searching (see Connectivity)
+        if (!exploring && !agent.connectivity.canReach(agent.posX, agent.posY, targets, mode)) {
+            throw new NoPathFoundException("No way to any of the targets");
+        }
+        Region startRegion = regionMap.getRegion(agent.posX, agent.posY);
+        RouteStep route = null;
+        if (startRegion != null) {
+            RouteStep start = new RouteStep(null, startRegion, pickUp(0, startRegion), 0, agent.hasRaft, 0);
+            try {
+                route = findRoute(start, targets, kind, options, false);
+            } catch (NoPathFoundException e) {
+                /* The short key may have merged away the only route there, so the regions are searched again with every
+                 * removed obstacle in the key. That takes much longer, so the distance field for the tools the agent
+                 * holds is checked first, as it shows there is no way without searching more often than not */
+                DistanceField field = new DistanceField(agent, targets, mode, null);
+                if (field.get(agent) == DistanceField.UNREACHABLE) {
+                    throw new NoPathFoundException("No way to any of the targets");
+                }
+                route = findRoute(start, targets, kind, options, true); // Throws NoPathFoundException if there is none
+            }
+        }
+        if (route == null) {
+            return exploring ? Search.UCS(agent, mode, options) : Search.AStar(agent, targets, mode, options);
+        }
+
+        // Find the first obstacle on the route, or the target if there is none
+        LinkedList<RouteStep> steps = new LinkedList<>();
+        for (RouteStep step = route; step != null; step = step.parent) {
+            steps.addFirst(step);
+        }
+        boolean[] corridor = new boolean[State.mapSize * State.mapSize];
+        LinkedList<Tile> legTargets = new LinkedList<>();
+        LinkedList<Tile> legItems = new LinkedList<>();
+        for (RouteStep step : steps) {
+            step.region.markCells(corridor);
+            if (step.region.isObstacle()) {
+                legTargets.add(step.region.getTile(agent));
+                break;
+            }
+            legItems.addAll(step.region.items);
+        }
+
+        // The route counts the items in the regions it passes as picked up, so the agent has to go and get them first
+        if (!legItems.isEmpty()) {
+            legTargets = legItems;
+        } else if (legTargets.isEmpty()) {
+            for (Tile target : targets) {
+                if (regionMap.getRegion(target.getX(), target.getY()) == route.region) {
+                    legTargets.add(target);
+                }
+            }
+        }
+
+        // The corridor search uses its own open list, so the one in the options is left for the normal search
+        SearchOptions legOptions = new SearchOptions();
+        legOptions.macroActions = options.macroActions;
+        legOptions.jumpPoints = options.jumpPoints;
+        legOptions.distanceField = options.distanceField;
+        legOptions.toolHeuristic = options.toolHeuristic;
+        legOptions.corridor = corridor;
+        legOptions.cancelled = options.cancelled;
+        legOptions.maxOpenStates = options.maxOpenStates;
+        legOptions.weight = options.weight;
+        legOptions.deadline = options.deadline;
+        legOptions.partialPlan = options.partialPlan;
+        legOptions.dominance = options.dominance;
+        try {
+            return Search.AStar(agent, legTargets, mode, legOptions);
+        } catch (NoPathFoundException e) {
+            return exploring ? Search.UCS(agent, mode, options) : Search.AStar(agent, targets, mode, options);
+        }
+    }
+
+    /* Find the cheapest route through the regions from the given step to a region containing a target, with
+     * Dijkstra's algorithm. Returns the last step of the route, or null if the search gave up before finding one, which
+     * it also does when the deadline of the options has passed, or when it ran out of routes after leaving items out.
+     * The steps are told apart by all the obstacles they have removed, or only by the short key (see RouteStep.key) */
+    private RouteStep findRoute(RouteStep start, LinkedList<Tile> targets, LegKind kind, SearchOptions options,
+                                boolean allRemoved)
+            throws NoPathFoundException {
+        PriorityQueue<RouteStep> open = new PriorityQueue<>();
+        LongHashSet closed = new LongHashSet();
+        open.add(start);
+
+        int expanded = 0;
+        while (!open.isEmpty() && expanded < MAX_EXPANDED) {
+            if (options.cancelled != null && options.cancelled.get()) {
+                throw new NoPathFoundException("The search was cancelled");
+            }
+            if (Search.pastDeadline(options)) {
+                return null; // The normal search is left to find a partial plan
+            }
+
+            RouteStep current = open.poll();
+            if (!closed.add(current.key(allRemoved))) {
+                continue;
+            }
+            expanded++;
+
+            if (current.region.containsAny(targets, regionMap) && isGoal(current, kind, options, allRemoved)) {
+                return current;
+            }
+
+            boolean hasAxe = hasAxe(current);
+            boolean hasKey = hasKey(current);
+            int dynamites = dynamites(current);
+            int trees = agent.knownTrees.size();
+            char currentType = current.region.isObstacle() ? ' ' : current.region.type; // Removed obstacles are land
+
+            for (Region next : current.region.neighbours) {
+                char nextType = next.isObstacle() ? ' ' : next.type; // The type of the region once the agent is in it
+                boolean raft = current.raft;
+                int used = current.dynamitesUsed;
+                int cost;
+
+                // The cost of moving into the region, the same as for the single actions in SearchState
+                if (currentType == '~' && nextType == ' ') {
+                    if (mode == SearchMode.SAFE) {
+                        continue;
+                    }
+                    cost = 5;
+                    raft = false; // Moving from water onto land leaves the raft behind
+                } else if (currentType == ' ' && nextType == '~') {
+                    if (mode == SearchMode.SAFE || !raft) {
+                        continue;
+                    }
+                    cost = trees > 0 ? 5 / trees : 5;
+                } else {
+                    cost = 1;
+                }
+
+                // The cost of removing the obstacle first, if the region is one that hasn't been removed on this route
+                switch (current.hasRemoved(next) ? ' ' : next.type) {
+                    case 't':
+                        if (mode != SearchMode.SAFE && hasAxe) {
+                            cost += current.raft ? Math.max(trees > 0 ? 12 / trees : 12, 1) : 1;
+                            raft = currentType != '~'; // Chopping gives a raft, but it is left behind if moving from water
+                        } else if (mode == SearchMode.FREE && dynamites > 0) {
+                            cost += currentType == '~' ? 25 : 20;
+                            used++;
+                        } else {
+                            continue;
+                        }
+                        break;
+                    case '-':
+                        if (hasKey) {
+                            cost += 1;
+                        } else if (mode == SearchMode.FREE && dynamites > 0) {
+                            cost += currentType == '~' ? 25 : 20;
+                            used++;
+                        } else {
+                            continue;
+                        }
+                        break;
+                    case '*':
+                        if (mode == SearchMode.FREE && dynamites > 0) {
+                            cost += currentType == '~' ? 20 : 15;
+                            used++;
+                        } else {
+                            continue;
+                        }
+                        break;
+                }
+
+                if (kind == LegKind.START && used > current.dynamitesUsed) {
+                    cost += RETURN_DYNAMITE_COST;
+                }
+
+                RouteStep step = new RouteStep(current, next, pickUp(current.items, next), used, raft, current.cost + cost);
+                if (!closed.contains(step.key(allRemoved))) {
+                    open.add(step);
+                }
+            }
+        }
+
+        if (open.isEmpty() && !itemsLeftOut) {
+            throw new NoPathFoundException("No route through the regions of the map");
+        }
+        return null;
+    }
+
+    /* Check if a step in a region with a target is a goal of the route. Except when exploring, the agent must be able
+     * to get back to the start from the step. Routes to an item must also pick up something that is worth the dynamite
+     * used to get there and back */
+    private boolean isGoal(RouteStep step, LegKind kind, SearchOptions options, boolean allRemoved) {
+        if (kind == LegKind.FRONTIER || kind == LegKind.START) {
+            return true;
+        }
+
+        LinkedList<Tile> start = new LinkedList<>();
+        start.add(agent.getTile(State.start, State.start));
+        RouteStep back;
+        try {
+            back = findRoute(step, start, LegKind.START, options, allRemoved);
+        } catch (NoPathFoundException e) {
+            return false;
+        }
+        if (back == null) {
+            return false;
+        }
+
+        if (kind == LegKind.ITEM && back.dynamitesUsed > 0) {
+            return dynamites(back) > agent.dynamites || hasAxe(back) != agent.hasAxe || hasKey(back) != agent.hasKey;
+        }
+        return true;
+    }
+
+    /* Check if the agent has an axe after the given step */
+    private boolean hasAxe(RouteStep step) {
+        return agent.hasAxe || step.has('a', items, numItems);
+    }
+
+    /* Check if the agent has a key after the given step */
+    private boolean hasKey(RouteStep step) {
+        return agent.hasKey || step.has('k', items, numItems);
+    }
+
+    /* Get the number of dynamites the agent has after the given step */
+    private int dynamites(RouteStep step) {
+        return agent.dynamites + step.count('d', items, numItems) - step.dynamitesUsed;
+    }
+
+    /* Add the items in the given region to the bit mask of items picked up */
+    private long pickUp(long picked, Region region) {
+        for (Tile item : region.items) {
+            for (int i = 0; i < numItems; i++) {
+                if (items[i].getX() == item.getX() && items[i].getY() == item.getY()) {
+                    picked |= 1L << i;
+                }
+            }
+        }
+        return picked;
+    }
+
+    /* What the route through the regions is looking for */
+    private enum LegKind {
+        TARGET,   // A region with one of the targets
+        ITEM,     // A region with an item, that is worth the dynamite used to get there
+        FRONTIER, // A region with unseen tiles next to it
+        START     // The region with the start position, when checking that the agent can get back to it
+    }
+}
@@ -0,0 +1,106 @@
+/* The RouteStep class is a state of the region level search in RegionPlanner: the region the agent is in, the items it
+ * has picked up, how much dynamite it has used, whether it has a raft, and which obstacles it has removed. A step that
+ * removes an obstacle links back to the step before it on the route that removed one, so the obstacles removed on a
+ * route are found by following those links, without walking back over the other steps of the route */
+class RouteStep implements Comparable<RouteStep> {
+    final RouteStep parent;
+    final Region region;
+    final long items; // Bit mask of the items picked up, numbered by the planner
+    final int dynamitesUsed;
+    final boolean raft;
+    final int cost;
+
+    private final boolean removes; // If moving into the region removed an obstacle
+    private final RouteStep removedBefore; // The last step before this one on the route that removed an obstacle
+    private final long removedHash; // Zobrist hash of the obstacles removed on the route
+    private final long blownAround; // Zobrist hash of the obstacles blown up on the route in or next to the region
+
+    RouteStep(RouteStep parent, Region region, long items, int dynamitesUsed, boolean raft, int cost) {
+        this.parent = parent;
+        this.region = region;
+        this.items = items;
+        this.dynamitesUsed = dynamitesUsed;
+        this.raft = raft;
+        this.cost = cost;
+
+        // Moving into an obstacle region removes it, unless it was removed earlier on the route
+        removedBefore = parent == null ? null : parent.lastRemoved();
+        removes = region.isObstacle() && (parent == null || !parent.hasRemoved(region));
+        long hash = parent == null ? 0 : parent.removedHash;
+        removedHash = removes ? hash ^ removedValue(region) : hash;
+
+        // Holes blown next to the region let the agent leave it again for free, so the short key keeps routes that have
+        // blown different ones apart. There are never more holes than the agent has dynamite
+        hash = 0;
+        for (RouteStep step = lastRemoved(); step != null; step = step.removedBefore) {
+            if (step.blewUp() && (step.region == region || region.neighbours.contains(step.region))) {
+                hash ^= Zobrist.tileBlownUp[step.region.getCell()];
+            }
+        }
+        blownAround = hash;
+    }
+
+    /* Check if the given obstacle region has been removed on the route leading to this step */
+    boolean hasRemoved(Region region) {
+        for (RouteStep step = lastRemoved(); step != null; step = step.removedBefore) {
+            if (step.region == region) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Get the last step of the route up to and including this one that removed an obstacle, or null if none did */
+    private RouteStep lastRemoved() {
+        return removes ? this : removedBefore;
+    }
+
+    /* Check if this step removed its obstacle with dynamite */
+    private boolean blewUp() {
+        return removes && parent != null && dynamitesUsed > parent.dynamitesUsed;
+    }
+
+    /* Check if any of the items of the given kind have been picked up */
+    boolean has(char kind, Tile[] numbered, int numItems) {
+        return count(kind, numbered, numItems) > 0;
+    }
+
+    /* Count the items of the given kind that have been picked up */
+    int count(char kind, Tile[] numbered, int numItems) {
+        int count = 0;
+        for (int i = 0; i < numItems; i++) {
+            if ((items & (1L << i)) != 0 && numbered[i].getItem() == kind) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* Pack the step into a long: the items in the high 32 bits, and the region, dynamite used and raft in the low bits,
+     * XOR-ed with a hash of the obstacles removed. With all the removed obstacles, two steps with the same key are the
+     * same state of the region level search. Routes that removed different obstacles can't always do the same things:
+     * one that chopped a tree can't chop it again for a raft, and one that didn't blow up a wall may have no dynamite
+     * left to get through it. Otherwise only the holes blown in or next to the region are hashed, which keeps the
+     * number of states down, but may merge a route that can still reach a target with one that can't */
+    long key(boolean allRemoved) {
+        return ((items << 32) | ((long) region.id << 8) | (Math.min(dynamitesUsed, 127) << 1) | (raft ? 1 : 0))
+                ^ (allRemoved ? removedHash : blownAround);
+    }
+
+    /* Sort by cost, for the priority queue */
+    public int compareTo(RouteStep step) {
+        return Integer.compare(cost, step.cost);
+    }
+
+    /* Get the Zobrist value of removing the obstacle region, by the way its type is removed with a tool */
+    private static long removedValue(Region region) {
+        switch (region.type) {
+            case 't':
+                return Zobrist.treeChopped[region.getCell()];
+            case '-':
+                return Zobrist.doorOpened[region.getCell()];
+            default:
+                return Zobrist.tileBlownUp[region.getCell()];
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
+/* The RouteTable class caches the routes between the points of interest of the map: the start, the known treasures and
+ * the known items. For each point it keeps a distance field from every cell of the map to the point, so the cost of
+ * the route to it from any position (the agent's, or another point's) is a single array access, and the path of the
+ * route is found by following the field down to the point. A route is made with the tools held when it starts, and
+ * picks up nothing on the way, so each point has a field for each set of tools, found when it is first needed. The
+ * paths are kept with the field they were found from.
+ *
+ * The agent keeps one for the whole game. When the map changes, only the fields a changed cell may have made a cheaper
+ * route through are dropped, with their paths, and found again when they are next needed. A cell that neither a route
+ * to the point nor a cell next to one can reach is left out of every route to it, however it changes. So are the
+ * points that are gone, like an item that has been picked up, as the field reaches its own point. */
+class RouteTable {
+
+    // The change in cell index when moving one step in each direction (east, north, west, south)
+    private final static int[] STEPS = {1, -State.mapSize, -1, State.mapSize};
+
+    private final State state;
+    private final SearchMode mode;
+    private final HashMap<Integer, DistanceField[]> fields = new HashMap<>(); // By cell, then by set of tools
+    private final HashMap<Long, int[]> paths = new HashMap<>(); // By start, point and tools (see pathKey)
+    private int toWaterCost;
+
+    /* Constructor for the routes over the given state's map, with the actions allowed in the search mode */
+    RouteTable(State state, SearchMode mode) {
+        this.state = state;
+        this.mode = mode;
+        this.toWaterCost = DistanceField.toWaterCost(state);
+    }
+
+    /* Drop the fields and paths the given cells of the state's map may have changed, as they have changed since they
+     * were found. Moving onto water costs less or more everywhere once the number of known trees changes, so then
+     * every field is dropped */
+    void mapChanged(int[] changedCells, int numChangedCells) {
+        if (DistanceField.toWaterCost(state) != toWaterCost) {
+            toWaterCost = DistanceField.toWaterCost(state);
+            fields.clear();
+            paths.clear();
+            return;
+        }
+
+        Iterator<Map.Entry<Integer, DistanceField[]>> entries = fields.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, DistanceField[]> entry = entries.next();
+            DistanceField[] toolFields = entry.getValue();
+            boolean empty = true;
+            for (int tools = 0; tools < toolFields.length; tools++) {
+                if (toolFields[tools] != null && reaches(toolFields[tools], changedCells, numChangedCells)) {
+                    toolFields[tools] = null;
+                    dropPaths(entry.getKey(), tools);
+                }
+                empty &= toolFields[tools] == null;
+            }
+            if (empty) {
+                entries.remove();
+            }
+        }
+    }
+
+    /* Get the cost of the cheapest route from the given position to the point of interest at the given cell, for a
+     * state holding the given tools, or DistanceField.UNREACHABLE if there is none */
+    int cost(int x, int y, int cell, int tools) {
+        return field(cell, tools).get(x, y);
+    }
+
+    /* Get the cells of the cheapest route from the given position to the point of interest at the given cell, not
+     * including the position, for a state holding the given tools, or null if there is none */
+    int[] path(int x, int y, int cell, int tools) {
+        tools = DistanceField.usefulTools(tools, mode);
+        long key = pathKey(y * State.mapSize + x, cell, tools);
+        int[] path = paths.get(key);
+        if (path == null && !paths.containsKey(key)) {
+            path = field(cell, tools).path(x, y);
+            paths.put(key, path);
+        }
+        return path;
+    }
+
+    /* Get the actions that take the agent along the cheapest route to the point of interest, for the tools it holds,
+     * or null if the route does more than walk over land and unlock doors. Such a route can be followed back the same
+     * way, so it never leaves the agent unable to get home, and the agent can take it without searching */
+    LinkedList<Character> walk(State agent, Tile point) {
+        if (agent.getTypeAtPos() != ' ') {
+            return null;
+        }
+        int[] path = path(agent.posX, agent.posY, point.getY() * State.mapSize + point.getX(),
+                DistanceField.heldTools(agent));
+        if (path == null) {
+            return null;
+        }
+
+        LinkedList<Character> actions = new LinkedList<>();
+        int cell = agent.posY * State.mapSize + agent.posX;
+        int direction = agent.direction;
+        for (int next : path) {
+            char type = agent.getType(next % State.mapSize, next / State.mapSize);
+            if (type != ' ' && (type != '-' || !agent.hasKey)) {
+                return null;
+            }
+
+            // Turn left as often as needed, or right once instead of left three times
+            int facing = direction(cell, next);
+            int turns = (facing - direction + 4) % 4;
+            if (turns == 3) {
+                actions.add('r');
+            } else {
+                for (int i = 0; i < turns; i++) {
+                    actions.add('l');
+                }
+            }
+            if (type == '-') {
+                actions.add('u');
+            }
+            actions.add('f');
+            cell = next;
+            direction = facing;
+        }
+        return actions;
+    }
+
+    /* Get the search mode the routes are found for */
+    SearchMode getMode() {
+        return mode;
+    }
+
+    /* Get the field of the routes to the point of interest at the given cell, for a state holding the given tools */
+    private DistanceField field(int cell, int tools) {
+        tools = DistanceField.usefulTools(tools, mode);
+        DistanceField[] toolFields = fields.get(cell);
+        if (toolFields == null) {
+            toolFields = new DistanceField[DistanceField.ALL_TOOLS + 1];
+            fields.put(cell, toolFields);
+        }
+        if (toolFields[tools] == null) {
+            LinkedList<Tile> point = new LinkedList<>();
+            point.add(state.getTile(cell % State.mapSize, cell / State.mapSize));
+            toolFields[tools] = new DistanceField(state, point, mode, tools);
+        }
+        return toolFields[tools];
+    }
+
+    /* Check if a route of the field may go through one of the given cells, as it reaches the cell or one next to it */
+    private static boolean reaches(DistanceField field, int[] cells, int numCells) {
+        for (int i = 0; i < numCells; i++) {
+            int cell = cells[i];
+            if (field.get(cell % State.mapSize, cell / State.mapSize) != DistanceField.UNREACHABLE) {
+                return true;
+            }
+            for (int step : STEPS) {
+                int next = cell + step;
+                if (next >= 0 && next < State.mapSize * State.mapSize
+                        && field.get(next % State.mapSize, next / State.mapSize) != DistanceField.UNREACHABLE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* Drop the paths to the point of interest at the given cell, for the given tools */
+    private void dropPaths(int cell, int tools) {
+        paths.keySet().removeIf(key -> key % (State.mapSize * State.mapSize * 8L) == cell * 8L + tools);
+    }
+
+    /* Number a route by the cell it starts at, the point's cell and the tools */
+    private static long pathKey(int start, int cell, int tools) {
+        return ((long) start * State.mapSize * State.mapSize + cell) * 8 + tools;
+    }
+
+    /* Get the direction of the step from one cell to the next one */
+    private static int direction(int cell, int next) {
+        for (int direction = 0; direction < STEPS.length; direction++) {
+            if (next - cell == STEPS[direction]) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,8 +1,5 @@
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 
 /* The Search class implements the A* and Uniform Cost Search search algorithms to search through the state space
  * of the game.  */
@@ -10,116 +7,222 @@ class Search {
 
     /* Search from the agents state to one of the provided targets, using the A* algorithm */
     static LinkedList<Character> AStar(Agent agent, LinkedList<Tile> targets, SearchMode mode) throws NoPathFoundException {
+        return AStar(agent, targets, mode, new SearchOptions());
+    }
+
+    /* Search from the agents state to one of the provided targets, using the A* algorithm with the given options */
+    static LinkedList<Character> AStar(Agent agent, LinkedList<Tile> targets, SearchMode mode, SearchOptions options) throws NoPathFoundException {
 
         // If no targets where provided, don't try to search, simply return
         if (targets == null || targets.isEmpty()) {
             throw new NoPathFoundException("No targets provided");
         }
 
-        return findPath(agent, targets, "AStar", mode);
+        // The targets may not be connected to the agent at all, which is found without searching (see Connectivity)
+        if (!agent.connectivity.canReach(agent.posX, agent.posY, targets, mode)) {
+            throw new NoPathFoundException("No way to any of the targets");
+        }
+
+        return findPath(agent, targets, "AStar", mode, options);
     }
 
     /* Perform uniform cost search from the agents state. Considers any tile with unseen tiles around it a target */
     static LinkedList<Character> UCS(Agent agent, SearchMode mode) throws NoPathFoundException {
+        return UCS(agent, mode, new SearchOptions());
+    }
+
+    /* Perform uniform cost search from the agents state, with the given options */
+    static LinkedList<Character> UCS(Agent agent, SearchMode mode, SearchOptions options) throws NoPathFoundException {
+
+        // There may be no tile with unseen tiles around it that is connected to the agent (see Connectivity)
+        if (!agent.connectivity.canExplore(agent.posX, agent.posY, mode)) {
+            throw new NoPathFoundException("No unseen tiles can be reached");
+        }
 
         /* Pass in an empty linked list as target. This makes SearchState set the heuristic to zero, which makes
          * A* search the same as UCS */
-        return findPath(agent, new LinkedList<Tile>(), "UCS", mode);
+        return findPath(agent, new LinkedList<Tile>(), "UCS", mode, options);
     }
 
     /* Perform A* or UCS search, depending on the inputs, and return the path to the target */
-    private static LinkedList<Character> findPath(Agent agent, LinkedList<Tile> targets, String algorithm, SearchMode mode) throws NoPathFoundException {
+    private static LinkedList<Character> findPath(Agent agent, LinkedList<Tile> targets, String algorithm, SearchMode mode,
+                                                  SearchOptions options) throws NoPathFoundException {
+        if (options.threads > 1) {
+            return new ParallelSearch(agent, targets, algorithm, mode, options).run();
+        }
+        if (options.weight > 1 && algorithm.equals("AStar")) {
+            return new AnytimeSearch(agent, targets, mode, options).run().plan;
+        }
+
         SearchState current;
         LinkedList<SearchState> newStates;
+        OpenList open = options.openList != null ? options.openList : new BucketQueue();
 
-        PriorityQueue<SearchState> open = new PriorityQueue<>();
-        HashMap<Integer, SearchState> openH = new HashMap<>();
-        HashSet<SearchState> closed = new HashSet<>();
+        /* The open and closed sets are keyed by the packed keys of the states. The closed set only stores the keys,
+         * so expanded states can be garbage collected once no open state refers to them */
+        LongObjectMap<SearchState> openH = new LongObjectMap<>();
+        LongHashSet closed = new LongHashSet();
+        DominanceFilter dominance = options.dominance ? new DominanceFilter() : null;
 
         // Add the starting state to the set of open states
-        SearchState firstState = new SearchState(agent, targets, mode);
+        SearchState firstState = new SearchState(agent, targets, mode, options);
+        if (firstState.getHeuristic() == DistanceField.UNREACHABLE) {
+            throw new NoPathFoundException("No way to any of the targets");
+        }
         open.add(firstState);
-        openH.put(firstState.hashCode(), firstState);
+        openH.put(firstState.getKey(), firstState);
+        SearchState closest = firstState; // The state found with the lowest heuristic, see SearchOptions.partialPlan
 
         // Search as long as there are open states, i.e. states that haven't been expanded
         while (!open.isEmpty()) {
 
+            if (options.cancelled != null && options.cancelled.get()) {
+                throw new NoPathFoundException("The search was cancelled");
+            }
+
             // Get the open state with lowest fCost
             current = open.poll();
-            openH.remove(current.hashCode());
-            closed.add(current);
+            openH.remove(current.getKey());
+            closed.add(current.getKey());
 
             /* If we have reached a goal, return the path to it. */
-            switch (algorithm) {
-
-                /* For A* the we have reached the goal if the current position is the same as the position of a target */
-                case "AStar":
-                    for (Tile target : targets) {
-                        if (target.getX() == current.posX && target.getY() == current.posY) {
-                            return current.getPathHere();
-                        }
-                    }
-                    break;
-
-                /* For UCS we have reached a goal if the current position has unseen tiles around it */
-                case "UCS":
-                    if (current.numUnseenTiles() > 0) {
-                        return current.getPathHere();
-                    }
-                    break;
-                default:
-                    throw new RuntimeException("Unknown search algorithm type");
+            if (isGoal(current, targets, algorithm)) {
+                return current.getPathHere();
             }
 
-
             // Expand the current state, and add / update the new states to open
             newStates = current.expandState();
             for (SearchState newState : newStates) {
 
                 // The state already been searched, and is no longer of interest
-                if (closed.contains(newState)) { // Works because SearchState overrides the equals method.
+                long key = newState.getKey();
+                if (closed.contains(key)) {
                     continue;
                 }
-                int hashCode = newState.hashCode();
-
-                /* Check if the new state is in the open hash map, so that the costly iteration through the open
-                 * priority queue only needs to be done when we know there is something that needs to be removed */
-                if (openH.containsKey(hashCode)) {
-                    if (newState.getFCost() < openH.get(hashCode).getFCost()) {
-                        openH.remove(hashCode);
-                        openH.put(hashCode, newState);
-
-                        Iterator<SearchState> it = open.iterator();
-                        while (it.hasNext()) {
-                            SearchState state = it.next();
-                            if (state.sameState(newState)) {
-                                it.remove();
-                                open.add(newState);
-                                break;
-                            }
-                        }
 
+                // No target can be reached from the state, so there is no point in searching from it
+                if (newState.getHeuristic() == DistanceField.UNREACHABLE) {
+                    continue;
+                }
+
+                // A state that has been found before with more items or fewer obstacles can do anything this one can
+                if (dominance != null && dominance.isDominated(newState)) {
+                    continue;
+                }
+
+                /* Check if the new state is in the open hash map. If it is, and the new state is a cheaper path to it,
+                 * the open list moves the new state into the old state's place without searching for it. The path
+                 * costs are compared, as a state that was opened again by forgetWorstStates has a raised fCost */
+                SearchState openState = openH.get(key);
+                if (openState != null) {
+                    if (newState.getCost() < openState.getCost()) {
+                        openH.put(key, newState);
+                        open.decreaseKey(openState, newState);
                     }
-                } else if (!openH.containsKey(hashCode)) {
+                } else {
                     open.add(newState);
-                    openH.put(hashCode, newState);
+                    openH.put(key, newState);
+                }
+                if (newState.getHeuristic() < closest.getHeuristic() && onlyMoved(firstState, newState)) {
+                    closest = newState;
                 }
             }
+
+            // The deadline is only checked after a state has been expanded, so there is always a step to take
+            if (pastDeadline(options)) {
+                return partialPlan(firstState, closest, options);
+            }
+
+            if (options.maxOpenStates > 0 && open.size() > options.maxOpenStates) {
+                forgetWorstStates(open, openH, closed, options.maxOpenStates / 2);
+                if (dominance != null) {
+                    dominance.clear(); // The forgotten states must not stop the search from finding them again
+                }
+            }
+        }
+
+        throw new NoPathFoundException("Exhausted all possibilities");
+    }
+
+    /* Forget all but the given number of the best open states, to bound the memory used by the search. The cost of the
+     * forgotten states is backed up to the nearest state they were expanded from that is closed, which is opened
+     * again, so the forgotten states are found again if the search ever needs them */
+    private static void forgetWorstStates(OpenList open, LongObjectMap<SearchState> openH, LongHashSet closed,
+                                          int keep) {
+        ArrayList<SearchState> states = new ArrayList<>(open.size());
+        while (!open.isEmpty()) {
+            states.add(open.poll());
+        }
+        for (int i = keep; i < states.size(); i++) {
+            openH.remove(states.get(i).getKey());
+        }
+
+        /* The states are sorted by their fCost, so the first forgotten state to reach a closed ancestor has the lowest
+         * fCost of them. The ancestors that were forgotten themselves are skipped, and an ancestor that is still open
+         * will expand its children again anyway */
+        ArrayList<SearchState> reopened = new ArrayList<>();
+        for (int i = keep; i < states.size(); i++) {
+            SearchState state = states.get(i);
+            SearchState ancestor = state.getParent();
+            while (ancestor != null && openH.get(ancestor.getKey()) != ancestor) {
+                if (closed.remove(ancestor.getKey())) {
+                    ancestor.setBackedUpCost(state.getFCost());
+                    openH.put(ancestor.getKey(), ancestor);
+                    reopened.add(ancestor);
+                    break;
+                }
+                ancestor = ancestor.getParent();
+            }
         }
 
-        throw new
+        for (int i = 0; i < keep; i++) {
+            open.add(states.get(i));
+        }
+        for (SearchState ancestor : reopened) {
+            open.add(ancestor);
+        }
+    }
 
-                NoPathFoundException("Exhausted all possibilities");
+    /* Check if the deadline of the search has passed */
+    static boolean pastDeadline(SearchOptions options) {
+        return options.deadline != 0 && System.nanoTime() - options.deadline > 0;
     }
-}
 
+    /* Check if a state differs from the first state of its search only in where the agent is. A partial plan only goes
+     * to such a state, so it doesn't use up an item or change the map in a way the rest of the way can't undo */
+    static boolean onlyMoved(SearchState firstState, SearchState state) {
+        return ((firstState.packedKey() ^ state.packedKey()) & ~(State.POSITION_BITS | State.DIRECTION_BITS)) == 0;
+    }
 
-class NoPathFoundException extends RuntimeException {
-    NoPathFoundException() {
-        super();
+    /* Get the path to the closest state to the targets a search has found before running out of time, if partial plans
+     * are allowed and it is closer than the first state. Otherwise the search gives up */
+    static LinkedList<Character> partialPlan(SearchState firstState, SearchState closest, SearchOptions options)
+            throws NoPathFoundException {
+        if (!options.partialPlan || closest.getHeuristic() >= firstState.getHeuristic()) {
+            throw new NoPathFoundException("Ran out of time");
+        }
+        return closest.getPathHere();
     }
 
-    NoPathFoundException(String message) {
-        super(message);
+    /* Check if the state is a goal of the search. For A* we have reached the goal if the current position is the
+     * same as the position of a target. The heuristic is zero on every target, so the targets are only checked if it
+     * is. For UCS we have reached a goal if the current position has unseen tiles around it */
+    static boolean isGoal(SearchState current, LinkedList<Tile> targets, String algorithm) {
+        switch (algorithm) {
+            case "AStar":
+                if (current.getHeuristic() != 0) {
+                    return false;
+                }
+                for (Tile target : targets) {
+                    if (target.getX() == current.posX && target.getY() == current.posY) {
+                        return true;
+                    }
+                }
+                return false;
+            case "UCS":
+                return current.numUnseenTiles() > 0;
+            default:
+                throw new RuntimeException("Unknown search algorithm type");
+        }
     }
 }
@@ -0,0 +1,78 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* The SearchOptions class holds the settings that change how a single call to Search finds its path. Which actions are
+ * allowed is the job of SearchMode, the options can only limit where on the map they are used. A new object with the
+ * default values gives the standard A* / uniform cost search over primitive actions. */
+class SearchOptions {
+
+    /* The open list to use. A new BucketQueue is used if this is not set */
+    OpenList openList = null;
+
+    /* Search over macro actions ("face a direction and act") instead of single actions. The direction of the agent is
+     * then not part of the state, and the cost of turning is added to the cost of the action instead */
+    boolean macroActions = false;
+
+    /* Use jump point search for uniform cost search in SAFE mode. In SAFE mode the map only changes when a door is
+     * unlocked, so straight runs across open land or water can be jumped over in one step, only stopping at cells
+     * where something can happen. Finds plans of the same cost as the normal search, also with macro actions, as the
+     * direction is kept in the key of a jump point state (see Benchmark -jps). The agent's SAFE exploration uses it,
+     * and finds its plans two to three times faster than with A* search and the frontier field */
+    boolean jumpPoints = false;
+
+    /* Restrict the search to the cells marked in this array (indexed by y * mapSize + x), or search the whole map if
+     * it is not set. Used by RegionPlanner to refine a route through the regions of the map. Jump point search is not
+     * used when the search is restricted */
+    boolean[] corridor = null;
+
+    /* Use a distance field as the heuristic of A* search, instead of the Manhattan distance to the nearest target. The
+     * field is found once per search (see DistanceField), and goes around the obstacles the search mode can't remove.
+     * States that no target can be reached from are never added to the open list */
+    boolean distanceField = false;
+
+    /* Look up the distance field for the tools each state holds (see DistanceField.get(State)), so a state that needs a
+     * key, an axe or dynamite it doesn't have is led to an item first, rather than up to the obstacle. Only used with a
+     * distance field */
+    boolean toolHeuristic = false;
+
+    /* A distance field to the same targets that was found before the search, to use as the heuristic instead of
+     * finding a new one. Used by FrontierFlood, that keeps its fields until the map changes */
+    DistanceField distances = null;
+
+    /* Give up the search, with a NoPathFoundException, once this flag is set. Used by PlanPortfolio to stop the
+     * searches for goals of a lower priority when a plan for a higher one has been found */
+    AtomicBoolean cancelled = null;
+
+    /* The number of threads to search with. With more than one, the search is split between the threads by the key of
+     * the states (see ParallelSearch). Each thread makes its own open list, so openList is not used, and the search
+     * always finds the cheapest plan, so weight is not used either. Only the benchmarks set it */
+    int threads = 1;
+
+    /* The largest number of open states to keep, or 0 for no limit. Above it, the worst half of the open states are
+     * forgotten, and the states they were expanded from are opened again with the lowest of their fCosts, like SMA*.
+     * The search then takes longer instead of running out of memory. Used by the A* and uniform cost searches and by
+     * the anytime search, but not by the parallel search. The heuristic never overestimates, but it is not consistent
+     * (see AnytimeSearch), so a state can be found through a cheaper path after it has been expanded. The anytime
+     * search expands it again, so its bounds still hold, but the others don't, so once they have forgotten states
+     * their plan may cost more than the cheapest one */
+    int maxOpenStates = 0;
+
+    /* With a weight above one, A* search is run as an anytime search (see AnytimeSearch): it first finds a plan with
+     * the heuristic multiplied by the weight, which is quick but may cost more than the cheapest one, and then lowers
+     * the weight and improves the plan for as long as there is time */
+    double weight = 1;
+
+    /* The System.nanoTime at which the search stops, or 0 for no deadline. The anytime search then returns the best
+     * plan it has. A search that has no plan by then gives up with a NoPathFoundException, unless partialPlan is set */
+    long deadline = 0;
+
+    /* Discard the states that another state the search has found is at least as good as (see DominanceFilter), when
+     * they are found. A state with more items or fewer obstacles left is then searched instead of every state with a
+     * subset of them. Not used by the parallel search */
+    boolean dominance = false;
+
+    /* When an A* search runs out of time before reaching a target, return the path to the state found closest to the
+     * targets (the one with the lowest heuristic) instead of giving up, if it is any closer than the start. Only states
+     * the agent can reach by just moving are used, without picking up or using anything. Used by the agent, which would
+     * rather make some progress than wait. Not used by the parallel search */
+    boolean partialPlan = false;
+}
@@ -0,0 +1,15 @@
+import java.util.LinkedList;
+
+/* The SearchResult class holds a plan found by a search, its cost, and a bound on how many times more than the
+ * cheapest plan it may cost (one if it is known to be the cheapest) */
+class SearchResult {
+    final LinkedList<Character> plan;
+    final int cost;
+    final double bound;
+
+    SearchResult(LinkedList<Character> plan, int cost, double bound) {
+        this.plan = plan;
+        this.cost = cost;
+        this.bound = bound;
+    }
+}
@@ -1,5 +1,5 @@
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.ListIterator;
 
 /* The SearchState class represents a state of the game that is found whilst searching through the statespace.
  * In addition to the game state, it keeps track of heuristics and costs, possible actions, previous actions.
@@ -7,15 +7,37 @@ import java.util.ListIterator;
 public class SearchState extends State implements Comparable<SearchState> {
     private LinkedList<Tile> targets;
 
-    private LinkedList<SearchState> prevStates;
-    private char prevAction;
+    private SearchState parent; // The state this state was expanded from, or null for the first state
+    private String prevActions; // The actions that lead from the parent to this state
     private int cost;
     private int heuristic = Integer.MAX_VALUE;
+    private int backedUpCost = 0; // The lowest fCost of the children a memory bounded search has forgotten, if any
+    private double weight = 1;    // See SearchOptions.weight
     private SearchMode mode = SearchMode.SAFE;
+    private boolean macroActions = false; // See SearchOptions.macroActions
+    private boolean jumpPoints = false;   // See SearchOptions.jumpPoints
+    private boolean[] corridor = null;    // See SearchOptions.corridor
+    private DistanceField distances = null; // The heuristic, if SearchOptions.distanceField or distances is set
+    private boolean toolHeuristic = false;  // See SearchOptions.toolHeuristic
+
+    // The turns needed to face each direction, indexed by how many left turns away from the current direction it is
+    private final static String[] TURNS = {"", "l", "ll", "r"};
+
+    // The change in x and y when moving one step in each direction (east, north, west, south)
+    private final static int[][] DELTAS = {{1, 0}, {0, -1}, {-1, 0}, {0, 1}};
+
+    /* The terrain is shared with the agent and all other search states, and is never changed during a search. The
+     * cells this state has changed are stored in a small copy-on-write overlay instead, that is shared with the parent
+     * until this state changes a cell itself */
+    private int[] changedCells = new int[0];
+    private byte[] changedValues = new byte[0];
+
+    int openIndex = -1; // Position of this state in the open list, maintained by the OpenList implementations
+    private long key;   // The packed key of this state, see State.packedKey
 
     /* Helper constructor, sets the parameters that are shared between Agent and SearchState objects */
     private SearchState(State state) {
-        this.map = state.map;
+        super(state);
         this.posX = state.posX;
         this.posY = state.posY;
         this.dynamites = state.dynamites;
@@ -25,23 +47,38 @@ public class SearchState extends State implements Comparable<SearchState> {
         this.hasRaft = state.hasRaft;
         this.hasTreasure = state.hasTreasure;
         this.direction = state.direction;
-        this.doorsOpened = shallowCopyLL(state.doorsOpened);
-        this.treesChopped = shallowCopyLL(state.treesChopped);
-        this.tilesBlownUp = shallowCopyLL(state.tilesBlownUp);
-        this.knownTrees = deepCopyLL(state.knownTrees);
-        this.knownItems = deepCopyLL(state.knownItems);
-        this.knownTreasures = deepCopyLL(state.knownTreasures);
+        this.zobrist = state.zobrist;
+        this.changedTilesHash = state.changedTilesHash;
+        this.doorsOpened = state.doorsOpened;
+        this.treesChopped = state.treesChopped;
+        this.tilesBlownUp = state.tilesBlownUp;
+        this.knownTrees = state.knownTrees;
+        this.knownItems = state.knownItems;
+        this.knownTreasures = state.knownTreasures;
     }
 
     /* Constructor for creating the initial SearchState from the current state of the agent */
-    SearchState(Agent agent, LinkedList<Tile> targets, SearchMode mode) {
+    SearchState(Agent agent, LinkedList<Tile> targets, SearchMode mode, SearchOptions options) {
         this(agent); // Uses SearchState(State state)
         this.targets = targets;
         this.mode = mode;
-        prevStates = new LinkedList<>();
-        prevAction = Character.MIN_VALUE; // null
+        this.macroActions = options.macroActions;
+        this.jumpPoints = options.jumpPoints && mode == SearchMode.SAFE && (targets == null || targets.isEmpty())
+                && options.corridor == null;
+        this.corridor = options.corridor;
+        this.weight = options.weight;
+        this.toolHeuristic = options.toolHeuristic;
+        if (options.distances != null) {
+            this.distances = options.distances;
+        } else if (options.distanceField && targets != null && !targets.isEmpty()) {
+            this.distances = new DistanceField(agent, targets, mode, options.corridor);
+        }
+        resetHash(); // The agent's fields may have been set directly, so don't trust its hash
+        parent = null;
+        prevActions = "";
         setCost(0);
         setHeuristic();
+        setKey();
     }
 
     /* Helper constructor for creating a new SearchState from an existing one */
@@ -49,95 +86,275 @@ public class SearchState extends State implements Comparable<SearchState> {
         this((State) state);
         this.targets = state.targets;
         this.mode = state.mode;
-        prevStates = shallowCopyLL(state.prevStates);
-        prevStates.addLast(state);
-        // Doesn't set cost, heuristic or prevAction
+        this.macroActions = state.macroActions;
+        this.jumpPoints = state.jumpPoints;
+        this.corridor = state.corridor;
+        this.distances = state.distances;
+        this.toolHeuristic = state.toolHeuristic;
+        this.weight = state.weight;
+        this.changedCells = state.changedCells;
+        this.changedValues = state.changedValues;
+        parent = state;
+        // Doesn't set cost, heuristic or prevActions
     }
 
     /* Constructor for creating a SearchState that expands a previous state by doing an action */
     private SearchState(SearchState state, char action) {
-        this(state);
+        this(state, String.valueOf(action));
+    }
 
-        // If map is about to change, do a deep copy so as to not mess up for other states.
-        switch (action) {
-            case 'u':
-            case 'c':
-            case 'b':
-                this.map = deepCopyMap();
-                break;
-            case 'f':
-                Position nextPos = getNextPos();
-                if (getTile(nextPos.getX(), nextPos.getY()).getItem() != '0') {
-                    this.map = deepCopyMap();
-                }
-        }
+    /* Constructor for creating a SearchState that expands a previous state by doing a sequence of actions */
+    private SearchState(SearchState state, String actions) {
+        this(state);
 
-        prevAction = action;
+        prevActions = actions;
         setCost(state.cost);
-        increaseCost(action);
-        updateState(action);
+        for (int i = 0; i < actions.length(); i++) {
+            increaseCost(actions.charAt(i));
+            updateState(actions.charAt(i));
+        }
         setHeuristic();
+        setKey();
+    }
+
+    /* Calculate the cost of performing a plan from the agent's current state */
+    static int planCost(Agent agent, LinkedList<Character> plan, SearchMode mode) {
+        SearchState state = new SearchState(agent, null, mode, new SearchOptions());
+        for (char action : plan) {
+            state = new SearchState(state, action);
+        }
+        return state.getCost();
     }
 
     /* Expands this state by creating all the new states that can be reached from it */
     LinkedList<SearchState> expandState() {
+        if (jumpPoints) {
+            return expandJumpState();
+        }
+        if (macroActions) {
+            return expandMacroState();
+        }
+
         LinkedList<SearchState> newStates = new LinkedList<>();
         Position nextPos = getNextPos();
-        Tile nextTile = getTile(nextPos.getX(), nextPos.getY());
+        char nextType = getType(nextPos.getX(), nextPos.getY());
 
         newStates.add(new SearchState(this, 'r'));
         newStates.add(new SearchState(this, 'l'));
 
-        // Can't plan a path into unexplored territory
-        if (nextTile != null) {
+        // Can't plan a path into unexplored territory, or out of the corridor
+        if (canEnter(nextPos.getX(), nextPos.getY())) {
 
-            if (canMoveForward(nextTile)) {
+            if (canMoveForward(nextType)) {
                 newStates.add(new SearchState(this, 'f'));
             }
-            if (canCutTree(nextTile)) {
+            if (canCutTree(nextType)) {
                 newStates.add(new SearchState(this, 'c'));
             }
-            if (canUnlock(nextTile)) {
+            if (canUnlock(nextType)) {
                 newStates.add(new SearchState(this, 'u'));
             }
-            if (canBlowUp(nextTile)) {
+            if (canBlowUp(nextType)) {
                 newStates.add(new SearchState(this, 'b'));
             }
         }
 
-        removeRepeatStates(newStates);
+        /* New states that repeat one of their previous states are not removed here. All previous states have been
+         * expanded, so the search finds them in its closed set */
+        return newStates;
+    }
+
+    /* Expands this state with macro actions. For each direction, the agent turns to face it and then performs one of
+     * the actions that are possible in that direction. States that only turn the agent are never created */
+    private LinkedList<SearchState> expandMacroState() {
+        LinkedList<SearchState> newStates = new LinkedList<>();
+
+        for (int leftTurns = 0; leftTurns < 4; leftTurns++) {
+            Position nextPos = getNextPos((direction + leftTurns) % 4);
+            char nextType = getType(nextPos.getX(), nextPos.getY());
+            String turns = TURNS[leftTurns];
+
+            // Can't plan a path into unexplored territory, or out of the corridor
+            if (!canEnter(nextPos.getX(), nextPos.getY())) {
+                continue;
+            }
+
+            if (canMoveForward(nextType)) {
+                newStates.add(new SearchState(this, turns + 'f'));
+            }
+            if (canCutTree(nextType)) {
+                newStates.add(new SearchState(this, turns + 'c'));
+            }
+            if (canUnlock(nextType)) {
+                newStates.add(new SearchState(this, turns + 'u'));
+            }
+            if (canBlowUp(nextType)) {
+                newStates.add(new SearchState(this, turns + 'b'));
+            }
+        }
+        return newStates;
+    }
+
+    /* Expands this state with jump point search, for uniform cost search in SAFE mode. For each direction the agent
+     * turns to face it, and then moves straight ahead until it reaches a jump point, a cell where it may have to do
+     * something other than moving on. Cells in between are never created as states. Unlocking doors is expanded as
+     * normal */
+    private LinkedList<SearchState> expandJumpState() {
+        LinkedList<SearchState> newStates = new LinkedList<>();
+        char terrainType = getTypeAtPos(); // In SAFE mode the agent never leaves the land or water it stands on
+
+        for (int leftTurns = 0; leftTurns < 4; leftTurns++) {
+            int jumpDirection = (direction + leftTurns) % 4;
+            Position nextPos = getNextPos(jumpDirection);
+            char nextType = getType(nextPos.getX(), nextPos.getY());
+            String turns = TURNS[leftTurns];
+
+            if (!isSeen(nextPos.getX(), nextPos.getY())) {
+                continue;
+            }
+            if (canUnlock(nextType)) {
+                newStates.add(new SearchState(this, turns + 'u'));
+            }
+            if (nextType != terrainType) {
+                continue;
+            }
+
+            int steps = jump(nextPos.getX(), nextPos.getY(), jumpDirection, terrainType);
+            if (steps > 0) {
+                StringBuilder actions = new StringBuilder(turns);
+                for (int i = 0; i < steps; i++) {
+                    actions.append('f');
+                }
+                newStates.add(new SearchState(this, actions.toString()));
+            }
+        }
         return newStates;
     }
 
-    /* Goes through a List of SearchStates and removes all states that have a state S in their prevStates list
-     * that satisfies state.sameState(S) */
-    private static void removeRepeatStates(LinkedList<SearchState> states) {
-        SearchState state;
-        ListIterator<SearchState> it = states.listIterator();
+    /* Move from the given cell in the given direction until a jump point is found. Returns the number of steps taken
+     * to reach the jump point (counting the step into the given cell), or 0 if the run ends without finding one */
+    private int jump(int x, int y, int jumpDirection, char terrainType) {
+        int[] delta = DELTAS[jumpDirection];
+
+        for (int steps = 1; ; steps++) {
+            if (isJumpPoint(x, y, jumpDirection, terrainType)) {
+                return steps;
+            }
+
+            // Probe sideways. If something can be reached by turning here, this is a jump point
+            for (int side = 1; side < 4; side += 2) {
+                int sideDirection = (jumpDirection + side) % 4;
+                int[] sideDelta = DELTAS[sideDirection];
+                int sideX = x + sideDelta[0];
+                int sideY = y + sideDelta[1];
+
+                while (isSeen(sideX, sideY) && getType(sideX, sideY) == terrainType) {
+                    if (isJumpPoint(sideX, sideY, sideDirection, terrainType)) {
+                        return steps;
+                    }
+                    sideX += sideDelta[0];
+                    sideY += sideDelta[1];
+                }
+            }
+
+            x += delta[0];
+            y += delta[1];
+            if (!isSeen(x, y) || getType(x, y) != terrainType) {
+                return 0;
+            }
+        }
+    }
+
+    /* Check if the agent may want to stop at the given cell, when moving through it in the given direction. That is
+     * if it is a goal, has an item, is next to a door the agent can unlock, or has a forced neighbour: a cell to the
+     * side that can be reached from here, but not from the cell behind it */
+    private boolean isJumpPoint(int x, int y, int jumpDirection, char terrainType) {
+        if (numUnseenTiles(x, y) > 0 || getItem(x, y) != '0') {
+            return true;
+        }
 
-        while (it.hasNext()) {
-            state = it.next();
-            if (state.prevStates != null && state.prevStates.contains(state)) {
-                it.remove();
+        int[] back = DELTAS[(jumpDirection + 2) % 4];
+        for (int side = 0; side < 4; side++) {
+            int[] delta = DELTAS[side];
+            if (hasKey && getType(x + delta[0], y + delta[1]) == '-') {
+                return true;
+            }
+
+            if (side % 2 != jumpDirection % 2) {
+                boolean open = isSeen(x + delta[0], y + delta[1]) && getType(x + delta[0], y + delta[1]) == terrainType;
+                int behindX = x + back[0] + delta[0];
+                int behindY = y + back[1] + delta[1];
+                boolean openBehind = isSeen(behindX, behindY) && getType(behindX, behindY) == terrainType;
+                if (open && !openBehind) {
+                    return true;
+                }
             }
         }
+        return false;
     }
 
-    /* Find the actions necessary to reach this state from the start state */
+    /* Find the actions necessary to reach this state from the start state, by following the parents back to it */
     LinkedList<Character> getPathHere() {
-        LinkedList<Character> path;
-
-        if (prevAction != Character.MIN_VALUE) {
-            path = prevStates.peekLast().getPathHere();
-            path.addLast(prevAction);
-            return path;
-        } else {
-            return new LinkedList<>();
+        LinkedList<Character> path = new LinkedList<>();
+
+        for (SearchState state = this; state.parent != null; state = state.parent) {
+            for (int i = state.prevActions.length() - 1; i >= 0; i--) {
+                path.addFirst(state.prevActions.charAt(i));
+            }
+        }
+        return path;
+    }
+
+    /* Get the packed cell at the given position. Cells changed by this state or its parents are found in the overlay,
+     * all other cells in the shared terrain */
+    @Override
+    byte getCell(int x, int y) {
+        int cell = y * mapSize + x;
+        for (int i = changedCells.length - 1; i >= 0; i--) {
+            if (changedCells[i] == cell) {
+                return changedValues[i];
+            }
+        }
+        return terrain[cell];
+    }
+
+    /* Set the packed cell at the given position in the overlay. The overlay arrays are copied, so the parent and the
+     * other states that share them are not affected */
+    @Override
+    void setCell(int x, int y, byte value) {
+        int cell = y * mapSize + x;
+        int length = changedCells.length;
+
+        for (int i = 0; i < length; i++) {
+            if (changedCells[i] == cell) {
+                changedValues = changedValues.clone();
+                changedValues[i] = value;
+                return;
+            }
+        }
+
+        changedCells = Arrays.copyOf(changedCells, length + 1);
+        changedValues = Arrays.copyOf(changedValues, length + 1);
+        changedCells[length] = cell;
+        changedValues[length] = value;
+    }
+
+    /* Set the packed key of this state. With macro actions the direction is left out, so states that only differ in
+     * which way the agent is facing are the same state */
+    private void setKey() {
+        key = packedKey();
+        if (macroActions && !jumpPoints) {
+            key &= ~DIRECTION_BITS;
         }
     }
 
+    /* Get the packed key of this state, which identifies it in the open and closed sets of a search */
+    long getKey() {
+        return key;
+    }
+
     /* Gets the path cost of moving to this state */
-    private int getCost() {
+    int getCost() {
         return cost;
     }
 
@@ -148,8 +365,8 @@ public class SearchState extends State implements Comparable<SearchState> {
 
     /* Sets the cost of going to this state, dependent on the action that was taken to reach it */
     private void increaseCost(char action) {
-        Tile currentTile = getTileAtPos();
-        Tile nextTile = getTile(getNextPos().getX(), getNextPos().getY());
+        char currentType = getTypeAtPos();
+        char nextType = getType(getNextPos().getX(), getNextPos().getY());
 
         switch (action) {
 
@@ -163,12 +380,12 @@ public class SearchState extends State implements Comparable<SearchState> {
             case 'f':
 
                 // Cost of moving from raft to land
-                if (currentTile.getType() == '~' && nextTile.getType() == ' ' && hasRaft) {
+                if (currentType == '~' && nextType == ' ' && hasRaft) {
                     this.cost += 5;
                 }
 
                 // Cost of moving from land to raft. Cheaper if there are many trees on the map
-                else if (currentTile.getType() == ' ' && nextTile.getType() == '~' && hasRaft) {
+                else if (currentType == ' ' && nextType == '~' && hasRaft) {
                     if (knownTrees.size() > 0) {
                         this.cost += Math.ceil(5 / knownTrees.size());
                     } else {
@@ -209,7 +426,7 @@ public class SearchState extends State implements Comparable<SearchState> {
             case 'b':
 
                 // Discourage blowing up tiles that can be removed in other ways
-                switch (nextTile.getType()) {
+                switch (nextType) {
                     case '*':
                         this.cost += 15;
                         break;
@@ -220,7 +437,7 @@ public class SearchState extends State implements Comparable<SearchState> {
                 }
 
                 // Discourage blowing up tiles from water, as this can lead to not being able to get off an island
-                if (currentTile.getType() == '~') {
+                if (currentType == '~') {
                     this.cost += 5;
                 }
                 break;
@@ -228,12 +445,13 @@ public class SearchState extends State implements Comparable<SearchState> {
     }
 
     /* Get the heuristic value of this state, that is the approximate cost of reaching the target */
-    private int getHeuristic() {
+    int getHeuristic() {
         return heuristic;
     }
 
-    /* Calculate the heuristic for this state. Uses the Manhattan distance to the closes target.
-     * If there are no targets, set the heuristic to zero. This makes uniform cost search possible with A* algorithm */
+    /* Calculate the heuristic for this state. Uses the distance field if there is one, and otherwise the Manhattan
+     * distance to the closes target. If there are no targets, set the heuristic to zero. This makes uniform cost
+     * search possible with A* algorithm */
     private void setHeuristic() {
         int newHeuristic;
 
@@ -241,6 +459,11 @@ public class SearchState extends State implements Comparable<SearchState> {
             this.heuristic = 0;
             return;
         }
+        if (distances != null) {
+            int distance = toolHeuristic ? distances.get(this) : distances.get(posX, posY);
+            this.heuristic = Math.min(distance, distanceThroughRemoved());
+            return;
+        }
 
         for (Tile target : targets) {
             newHeuristic = Math.abs(target.getX() - posX) + Math.abs(target.getY() - posY);
@@ -250,27 +473,75 @@ public class SearchState extends State implements Comparable<SearchState> {
         }
     }
 
-    /* Get the estimate total cost of reaching the goal from the start state */
+    /* Get the lowest cost a path to the nearest target can have if it goes through an obstacle this state has removed
+     * itself. The field is found on the agent's map, so it charges for removing the obstacle again, and a field for the
+     * tools the state holds may not let the path through at all. After the last of these obstacles on the path, the
+     * path only goes through cells the field is right about, so it costs at least the Manhattan distance to the obstacle
+     * plus the distance from it with every tool. The heuristic is the lower of that and the field, so it never
+     * overestimates */
+    private int distanceThroughRemoved() {
+        int distance = DistanceField.UNREACHABLE;
+        for (int cell : changedCells) {
+            char type = Terrain.type(terrain[cell]);
+            if (type != 't' && type != '-' && type != '*') {
+                continue; // A picked up item
+            }
+            int x = cell % mapSize;
+            int y = cell / mapSize;
+            int from = distances.get(x, y);
+            if (from != DistanceField.UNREACHABLE) {
+                distance = Math.min(distance, Math.abs(x - posX) + Math.abs(y - posY) + from);
+            }
+        }
+        return distance;
+    }
+
+    /* Get the estimate total cost of reaching the goal from the start state. With a weight above one, the heuristic is
+     * multiplied by it, and the fCost is no longer a lower bound */
     int getFCost() {
-        return getCost() + getHeuristic();
+        int heuristic = weight == 1 ? getHeuristic() : (int) (weight * getHeuristic());
+        return Math.max(getCost() + heuristic, backedUpCost);
+    }
+
+    /* Set the weight of the heuristic in the fCost. Used by the anytime search when it lowers the weight. Must not be
+     * called while the state is in an open list */
+    void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    /* Get the state this state was expanded from, or null for the first state */
+    SearchState getParent() {
+        return parent;
+    }
+
+    /* Set the fCost of an expanded state to the lowest fCost of its children that have been forgotten, before it is
+     * opened again. Used by the memory bounded search. Must not be called while the state is in an open list */
+    void setBackedUpCost(int fCost) {
+        backedUpCost = fCost;
+    }
+
+    /* Check if the search may plan a path into the given cell. It must have been seen, and be inside the corridor the
+     * search is restricted to, if there is one */
+    private boolean canEnter(int x, int y) {
+        return isSeen(x, y) && (corridor == null || corridor[y * mapSize + x]);
     }
 
     /* Check if the agent can move forward from this state */
-    private boolean canMoveForward(Tile nextTile) {
-        if (nextTile == null) {
+    private boolean canMoveForward(char nextType) {
+        if (nextType == 0) { // Unseen tile
             return false;
         }
 
-        Tile currentTile = getTileAtPos();
+        char currentType = getTypeAtPos();
         switch (mode) {
             case SAFE:
                 // Do not go from land to water, or from water to land. To avoid wasting raft
-                return currentTile.getType() == nextTile.getType();
+                return currentType == nextType;
             case MODERATE:
             case FREE:
 
                 // Can always move forward to land, but can only go into water if agent has a raft
-                switch (nextTile.getType()) {
+                switch (nextType) {
                     case ' ':
                         return true;
                     case '~':
@@ -285,8 +556,8 @@ public class SearchState extends State implements Comparable<SearchState> {
     }
 
     /* Check if agent can perform the chop tree action from this state */
-    private boolean canCutTree(Tile nextTile) {
-        if (nextTile == null) {
+    private boolean canCutTree(char nextType) {
+        if (nextType == 0) { // Unseen tile
             return false;
         }
 
@@ -296,20 +567,20 @@ public class SearchState extends State implements Comparable<SearchState> {
                 return false;
             case MODERATE:
             case FREE:
-                return nextTile.getType() == 't' && hasAxe;
+                return nextType == 't' && hasAxe;
             default:
                 return false;
         }
     }
 
     /* Check if agent can perform the unlock door action from this state */
-    private boolean canUnlock(Tile nextTile) {
-        return nextTile != null && nextTile.getType() == '-' && hasKey;
+    private boolean canUnlock(char nextType) {
+        return nextType == '-' && hasKey;
     }
 
     /* Check if agent can perform the blow up tile action from this state */
-    private boolean canBlowUp(Tile nextTile) {
-        if (nextTile == null) {
+    private boolean canBlowUp(char nextType) {
+        if (nextType == 0) { // Unseen tile
             return false;
         }
 
@@ -321,7 +592,7 @@ public class SearchState extends State implements Comparable<SearchState> {
             case FREE:
 
                 // Can use dynamite if the tile in front of the agent can be blown up, and it has dynamite in inventory
-                switch (nextTile.getType()) {
+                switch (nextType) {
                     case '*':
                     case 't':
                     case '-':
@@ -334,25 +605,37 @@ public class SearchState extends State implements Comparable<SearchState> {
         }
     }
 
-    /* Helper method that does a shallow copy of a linked list */
-    private <T> LinkedList<T> shallowCopyLL(LinkedList<T> list) {
-        LinkedList<T> newList = new LinkedList<>();
-        for (T item : list) {
-            newList.addLast(item);
+    /* Check if this state is at least as good as another state at the same place: it is as cheap, holds at least the
+     * same items, and has made every change to the map the other state has. Every plan from the other state then works
+     * from this one, for no more. The changes only this state has made must not take away something the other state
+     * could still use, so a tree only this state has chopped (the other can still make a raft from it) means it doesn't
+     * dominate, and it needs an extra dynamite for each one only it has picked up */
+    boolean dominates(SearchState other) {
+        if (cost > other.cost || (other.hasRaft && !hasRaft) || (other.hasAxe && !hasAxe) || (other.hasKey && !hasKey)
+                || (other.hasTreasure && !hasTreasure)) {
+            return false;
         }
-        return newList;
-    }
 
-    /* Helper method that does a deep copy of a linked list of tiles */
-    private LinkedList<Tile> deepCopyLL(LinkedList<Tile> list) {
-        LinkedList<Tile> tiles = new LinkedList<>();
-        Tile newTile;
+        for (int i = 0; i < other.changedCells.length; i++) {
+            int cell = other.changedCells[i];
+            if (getCell(cell % mapSize, cell / mapSize) != other.changedValues[i]) {
+                return false;
+            }
+        }
 
-        for (Tile tile : list) {
-            newTile = new Tile(tile);
-            tiles.add(newTile);
+        int extraDynamites = 0;
+        for (int cell : changedCells) {
+            if (other.getCell(cell % mapSize, cell / mapSize) != terrain[cell]) {
+                continue; // Changed by both states
+            }
+            if (Terrain.type(terrain[cell]) == 't') {
+                return false;
+            }
+            if (Terrain.item(terrain[cell]) == 'd') {
+                extraDynamites++;
+            }
         }
-        return tiles;
+        return dynamites >= other.dynamites + extraDynamites;
     }
 
     /* Overload the compareTo method. Needed for sorting in priority queue.
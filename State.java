@@ -1,17 +1,19 @@
-import java.util.LinkedList;
-import java.util.ListIterator;
 
 /* The State class keeps track of and describes the current state of the game. This includes the known map,
  * items in the agents possession, the agents position, and which tiles have been changed since the game started.
  * Both the Agent and SearchState classes extend State, as they both need to keep track of the state. */
 public class State {
-    private final static int mapSize = 164;
+    final static int mapSize = 164;
     final static int start = mapSize / 2;
-    Tile[][] map = new Tile[mapSize][mapSize];
+    byte[] terrain; // Row by row, see Terrain for how the cells are packed
 
-    LinkedList<Tile> knownTreasures = new LinkedList<>();
-    LinkedList<Tile> knownItems = new LinkedList<>();
-    LinkedList<Tile> knownTrees = new LinkedList<>();
+    // The number of unseen cells in the view around each cell (numUnseenTiles), kept up to date as cells are seen
+    byte[] unseenAround;
+
+    // The objects seen on the map. Shared with the states expanded from this one, see ObjectSet
+    ObjectSet knownTreasures = ObjectSet.EMPTY;
+    ObjectSet knownItems = ObjectSet.EMPTY;
+    ObjectSet knownTrees = ObjectSet.EMPTY;
 
     int posX, posY;
 
@@ -22,38 +24,105 @@ public class State {
     boolean hasRaft = false;
     boolean hasTreasure = false;
 
-    LinkedList<Tile> doorsOpened = new LinkedList<>();
-    LinkedList<Tile> treesChopped = new LinkedList<>();
-    LinkedList<Tile> tilesBlownUp = new LinkedList<>();
+    // The tiles changed since the game started. Shared with the states expanded from this one, see TileSet
+    TileSet doorsOpened = TileSet.EMPTY;
+    TileSet treesChopped = TileSet.EMPTY;
+    TileSet tilesBlownUp = TileSet.EMPTY;
 
-    private final static int EAST = 0;
-    private final static int NORTH = 1;
-    private final static int WEST = 2;
-    private final static int SOUTH = 3;
+    final static int EAST = 0;
+    final static int NORTH = 1;
+    final static int WEST = 2;
+    final static int SOUTH = 3;
 
     int direction = NORTH;
 
+    /* Zobrist hash of the state, and of the changed tiles alone. Both are kept up to date by updateState, which only
+     * XORs in the parts of the state each action changes, so hashing never depends on the number of changed tiles */
+    long zobrist;
+    long changedTilesHash;
+
+
+    // How far the agent can see in each direction, and the number of cells in its view
+    private final static int VIEW_RADIUS = 2;
+    private final static int VIEW_CELLS = (2 * VIEW_RADIUS + 1) * (2 * VIEW_RADIUS + 1);
+
+    /* The change in cell index from the agent's position to each cell of its view, for each direction it may face. The
+     * view is sent as rows seen with the agent facing up, so it is turned to match the map once here instead of for
+     * every cell of every view */
+    private final static int[][] VIEW_OFFSETS = viewOffsets();
+
+
+    /* Constructor for a state with a map of its own, where nothing has been seen yet */
+    State() {
+        terrain = new byte[mapSize * mapSize];
+        unseenAround = new byte[mapSize * mapSize];
+        java.util.Arrays.fill(unseenAround, (byte) VIEW_CELLS);
+    }
+
+    /* Constructor for a state that shares the map of another state */
+    State(State state) {
+        terrain = state.terrain;
+        unseenAround = state.unseenAround;
+    }
+
+    /* Get the packed cell at the given position from the map */
+    byte getCell(int x, int y) {
+        return terrain[y * mapSize + x];
+    }
+
+    /* Set the packed cell at the given position. Subclasses that share their map with other states override this,
+     * so they only change their own copy of the cell */
+    void setCell(int x, int y, byte cell) {
+        int index = y * mapSize + x;
+        boolean wasSeen = terrain[index] != Terrain.UNSEEN;
+        terrain[index] = cell;
+
+        // A cell that is seen for the first time is no longer unseen from any of the cells that can see it
+        if (wasSeen != (cell != Terrain.UNSEEN)) {
+            int change = wasSeen ? 1 : -1;
+            for (int viewY = Math.max(y - VIEW_RADIUS, 0); viewY <= Math.min(y + VIEW_RADIUS, mapSize - 1); viewY++) {
+                for (int viewX = Math.max(x - VIEW_RADIUS, 0); viewX <= Math.min(x + VIEW_RADIUS, mapSize - 1); viewX++) {
+                    unseenAround[viewY * mapSize + viewX] += change;
+                }
+            }
+        }
+    }
+
+    /* Get the environment type at the given position, or 0 if it hasn't been seen */
+    char getType(int x, int y) {
+        return Terrain.type(getCell(x, y));
+    }
+
+    /* Get the item at the given position, or '0' if there is none */
+    char getItem(int x, int y) {
+        return Terrain.item(getCell(x, y));
+    }
 
-    /* Get the tile at the given position from the map */
+    /* Check if the given position has been seen by the agent */
+    boolean isSeen(int x, int y) {
+        return getCell(x, y) != Terrain.UNSEEN;
+    }
+
+    /* Get the tile at the given position from the map, or null if it hasn't been seen. The tile is a copy, changing
+     * it does not change the map */
     Tile getTile(int x, int y) {
-        return map[y][x];
+        byte cell = getCell(x, y);
+        return cell == Terrain.UNSEEN ? null : new Tile(Terrain.type(cell), Terrain.item(cell), x, y);
     }
 
     /* Set the tile at the given position to be with given type and item */
     private void setTile(char type, char item, int x, int y) {
-        if (map[y][x] == null) {
-            // Tile doesn't exist, because it hasn't been seen before. Create it
-            map[y][x] = new Tile(type, item, x, y);
-        } else {
-            // Update existing tile
-            map[y][x].setItem(item);
-            map[y][x].setType(type);
-        }
+        setCell(x, y, Terrain.encode(type, item));
     }
 
 
     /* Get the position of the tile in front of the agent */
     Position getNextPos() {
+        return getNextPos(direction);
+    }
+
+    /* Get the position of the tile next to the agent in the given direction */
+    Position getNextPos(int direction) {
         int deltaX = 0;
         int deltaY = 0;
         int nextX, nextY;
@@ -79,23 +148,15 @@ public class State {
         return new Position(nextX, nextY);
     }
 
-    /* Get the tile at the agents current position */
-    Tile getTileAtPos() {
-        return getTile(this.posX, this.posY);
+    /* Get the environment type at the agents current position */
+    char getTypeAtPos() {
+        return getType(this.posX, this.posY);
     }
 
-    /* Calculate the number of unseen tiles that can be seen from the given coordinates */
-    private int numUnseenTiles(int x, int y) {
-        int unSeen = 0;
-        int i, j;
-        for (i = -2; i <= 2; i++) {
-            for (j = -2; j <= 2; j++) {
-                if (getTile(x + j, y + i) == null) {
-                    unSeen++;
-                }
-            }
-        }
-        return unSeen;
+    /* Get the number of unseen tiles that can be seen from the given coordinates. The search states never change which
+     * cells have been seen, so they share the agent's counts */
+    int numUnseenTiles(int x, int y) {
+        return unseenAround[y * mapSize + x];
     }
 
     /* Get the number of unseen tiles that can be seen from the current coordinates */
@@ -103,49 +164,32 @@ public class State {
         return numUnseenTiles(this.posX, this.posY);
     }
 
-    /* Update the map with the view provided by the game host */
+    /* Update the map with the view provided by the game host. Objects are only looked for in the cells the view has
+     * changed, as the ones that look the same as before are already known */
     void updateMap(char view[][]) {
-        int row, col, tileX, tileY;
-        char tileView;
+        int position = posY * mapSize + posX;
+        int[] offsets = VIEW_OFFSETS[direction];
 
         for (int i = 0; i < 5; i++) {
             for (int j = 0; j < 5; j++) {
-
-                // Transform coordinates to rotate view orientation to correct map orientation
-                switch (direction) {
-                    case NORTH:
-                        row = i;
-                        col = j;
-                        break;
-                    case WEST:
-                        row = 5 - 1 - j;
-                        col = i;
-                        break;
-                    case EAST:
-                        row = j;
-                        col = 5 - 1 - i;
-                        break;
-                    case SOUTH:
-                        row = 5 - 1 - i;
-                        col = 5 - 1 - j;
-                        break;
-                    default:
-                        throw new RuntimeException("Invalid direction");
-                }
-
-                tileY = posY - 2 + row;
-                tileX = posX - 2 + col;
-                tileView = Character.toLowerCase(view[i][j]);
+                int cell = position + offsets[i * 5 + j];
+                int tileX = cell % mapSize;
+                int tileY = cell / mapSize;
+                char tileView = Character.toLowerCase(view[i][j]);
 
                 if (i == 2 && j == 2) {
                     /* If players position has not been set before, the player must be on the start tile
                      * so set that tile to a "land" tile. Otherwise do nothing, as the view does not contain
                      * the players position */
-                    if (getTile(tileX, tileY) == null) {
+                    if (!isSeen(tileX, tileY)) {
                         setTile(' ', ' ', tileX, tileY);
                     }
                 } else {
+                    byte before = terrain[cell];
                     setTile(tileView, tileView, tileX, tileY);
+                    if (terrain[cell] == before) {
+                        continue;
+                    }
                     switch (tileView) {
                         case 'a':
                         case 'k':
@@ -160,14 +204,30 @@ public class State {
         }
     }
 
+    /* Find the change in cell index from the agent to each cell of its view (row by row, as sent by the game host), for
+     * each direction */
+    private static int[][] viewOffsets() {
+        int[][] offsets = new int[4][VIEW_CELLS];
+        int size = 2 * VIEW_RADIUS + 1;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                offsets[NORTH][i * size + j] = (i - VIEW_RADIUS) * mapSize + (j - VIEW_RADIUS);
+                offsets[WEST][i * size + j] = (size - 1 - j - VIEW_RADIUS) * mapSize + (i - VIEW_RADIUS);
+                offsets[EAST][i * size + j] = (j - VIEW_RADIUS) * mapSize + (size - 1 - i - VIEW_RADIUS);
+                offsets[SOUTH][i * size + j] = (size - 1 - i - VIEW_RADIUS) * mapSize + (size - 1 - j - VIEW_RADIUS);
+            }
+        }
+        return offsets;
+    }
+
     /* Update the state with the consequences of the next action that is performed */
     void updateState(char action) {
-        Tile currentTile = getTile(posX, posY);
+        char currentType = getType(posX, posY);
         Position nextPos = getNextPos();
 
         int nextX = nextPos.getX();
         int nextY = nextPos.getY();
-        Tile nextTile = getTile(nextX, nextY);
+        char nextType = getType(nextX, nextY);
 
         // Update agents world state
         switch (action) {
@@ -176,7 +236,7 @@ public class State {
             case 'f':
 
                 // Update agent position, depending on what is in front of it
-                switch (nextTile.getType()) {
+                switch (nextType) {
                     case '*':
                     case '-':
                     case 'T':
@@ -184,81 +244,98 @@ public class State {
                         break;
                     case ' ':
                         // Lose the raft when moving from water to land
-                        if (currentTile.getType() == '~' && hasRaft) {
+                        if (currentType == '~' && hasRaft) {
                             hasRaft = false;
+                            zobrist ^= Zobrist.hasRaft;
                         }
-                        posX = nextX;
-                        posY = nextY;
+                        moveTo(nextX, nextY);
                         break;
                     default:
-                        posX = nextX;
-                        posY = nextY;
+                        moveTo(nextX, nextY);
                         break;
                 }
 
                 // If the next tile has an item on it, add it to the inventory
-                switch (nextTile.getItem()) {
+                switch (getItem(nextX, nextY)) {
                     case 'a':
-                        hasAxe = true;
-                        pickupObject(nextTile);
+                        if (!hasAxe) {
+                            hasAxe = true;
+                            zobrist ^= Zobrist.hasAxe;
+                        }
+                        pickupObject(nextX, nextY);
                         break;
                     case 'd':
-                        hasDynamite = true;
-                        dynamites++;
-                        pickupObject(nextTile);
+                        if (!hasDynamite) {
+                            hasDynamite = true;
+                            zobrist ^= Zobrist.hasDynamite;
+                        }
+                        setDynamites(dynamites + 1);
+                        pickupObject(nextX, nextY);
                         break;
                     case 'k':
-                        hasKey = true;
-                        pickupObject(nextTile);
+                        if (!hasKey) {
+                            hasKey = true;
+                            zobrist ^= Zobrist.hasKey;
+                        }
+                        pickupObject(nextX, nextY);
                         break;
                     case '$':
-                        hasTreasure = true;
-                        pickupObject(nextTile);
+                        if (!hasTreasure) {
+                            hasTreasure = true;
+                            zobrist ^= Zobrist.hasTreasure;
+                        }
+                        pickupObject(nextX, nextY);
                         break;
                 }
                 break;
 
             // Moving left
             case 'l':
-                direction = (direction + 1) % 4;
+                turnTo((direction + 1) % 4);
                 break;
 
             // Moving right
             case 'r':
-                direction = (direction + 3) % 4;
+                turnTo((direction + 3) % 4);
                 break;
 
             // Chopping down a tree
             case 'c':
-                if (nextTile.getType() == 't' && hasAxe) {
-                    hasRaft = true;
-                    treesChopped.add(nextTile);
-                    pickupObject(nextTile);
-                    nextTile.setType(' ');
+                if (nextType == 't' && hasAxe) {
+                    if (!hasRaft) {
+                        hasRaft = true;
+                        zobrist ^= Zobrist.hasRaft;
+                    }
+                    pickupObject(nextX, nextY);
+                    treesChopped = treesChopped.with(nextY * mapSize + nextX);
+                    changeTile(Zobrist.treeChopped, nextX, nextY);
                 }
                 break;
 
             // Unlocking a door
             case 'u':
-                if (nextTile.getType() == '-' && hasKey) {
-                    doorsOpened.add(nextTile);
-                    nextTile.setType(' ');
+                if (nextType == '-' && hasKey) {
+                    setTile(' ', '0', nextX, nextY);
+                    doorsOpened = doorsOpened.with(nextY * mapSize + nextX);
+                    changeTile(Zobrist.doorOpened, nextX, nextY);
                 }
                 break;
 
             // Blowing up a tile
             case 'b':
                 if (hasDynamite) {
-                    switch (nextTile.getType()) {
+                    switch (nextType) {
                         case '*':
                         case '-':
                         case 't':
-                            dynamites--;
-                            if (dynamites <= 0) {
+                            setDynamites(dynamites - 1);
+                            if (dynamites <= 0 && hasDynamite) {
                                 hasDynamite = false;
+                                zobrist ^= Zobrist.hasDynamite;
                             }
-                            tilesBlownUp.add(nextTile);
-                            nextTile.setType(' ');
+                            setTile(' ', '0', nextX, nextY);
+                            tilesBlownUp = tilesBlownUp.with(nextY * mapSize + nextX);
+                            changeTile(Zobrist.tileBlownUp, nextX, nextY);
                             break;
                     }
                 }
@@ -266,6 +343,62 @@ public class State {
         }
     }
 
+    /* Move the agent to the given position, and update the hash */
+    private void moveTo(int x, int y) {
+        zobrist ^= Zobrist.position[posY * mapSize + posX] ^ Zobrist.position[y * mapSize + x];
+        posX = x;
+        posY = y;
+    }
+
+    /* Turn the agent to the given direction, and update the hash */
+    private void turnTo(int newDirection) {
+        zobrist ^= Zobrist.direction[direction] ^ Zobrist.direction[newDirection];
+        direction = newDirection;
+    }
+
+    /* Set the number of dynamites held, and update the hash */
+    private void setDynamites(int count) {
+        zobrist ^= dynamitesHash(dynamites) ^ dynamitesHash(count);
+        dynamites = count;
+    }
+
+    /* Add a changed tile to the hashes, using the values for the way it was changed */
+    private void changeTile(long[] values, int x, int y) {
+        long value = values[y * mapSize + x];
+        zobrist ^= value;
+        changedTilesHash ^= value;
+    }
+
+    /* Helper function to get the hash value of a number of dynamites */
+    private static long dynamitesHash(int count) {
+        return Zobrist.dynamites[Math.max(0, Math.min(count, Zobrist.dynamites.length - 1))];
+    }
+
+    /* Calculate the hashes from scratch, by going through the whole state. Needed when the state has been set up
+     * without updateState, after that the hashes are kept up to date as actions are performed */
+    void resetHash() {
+        changedTilesHash = 0;
+        for (int i = 0; i < doorsOpened.size(); i++) {
+            changedTilesHash ^= Zobrist.doorOpened[doorsOpened.get(i)];
+        }
+        for (int i = 0; i < treesChopped.size(); i++) {
+            changedTilesHash ^= Zobrist.treeChopped[treesChopped.get(i)];
+        }
+        for (int i = 0; i < tilesBlownUp.size(); i++) {
+            changedTilesHash ^= Zobrist.tileBlownUp[tilesBlownUp.get(i)];
+        }
+
+        zobrist = changedTilesHash;
+        zobrist ^= Zobrist.position[posY * mapSize + posX];
+        zobrist ^= Zobrist.direction[direction];
+        zobrist ^= dynamitesHash(dynamites);
+        zobrist ^= hasDynamite ? Zobrist.hasDynamite : 0;
+        zobrist ^= hasAxe ? Zobrist.hasAxe : 0;
+        zobrist ^= hasKey ? Zobrist.hasKey : 0;
+        zobrist ^= hasRaft ? Zobrist.hasRaft : 0;
+        zobrist ^= hasTreasure ? Zobrist.hasTreasure : 0;
+    }
+
     /* Print the map. Will only print lines that have discovered tiles in them. Legend:
      * ?: Unseen tile
      * S: Start position
@@ -341,7 +474,7 @@ public class State {
     boolean sameState(State state) {
 
         /* Compare doorsOpened, treesChopped and tileBlownUp (the changes to the map) instead of the whole map,
-         * as that is very costly. */
+         * as that is very costly. The sets are canonical, so they are the same set only if they are the same object */
         return this.posX == state.posX &&
                 this.posY == state.posY &&
                 this.dynamites == state.dynamites &&
@@ -351,131 +484,83 @@ public class State {
                 this.hasRaft == state.hasRaft &&
                 this.hasTreasure == state.hasTreasure &&
                 this.direction == state.direction &&
-                sameChangedTiles(this.doorsOpened, state.doorsOpened) &&
-                sameChangedTiles(this.treesChopped, state.treesChopped) &&
-                sameChangedTiles(this.tilesBlownUp, state.tilesBlownUp);
+                this.doorsOpened == state.doorsOpened &&
+                this.treesChopped == state.treesChopped &&
+                this.tilesBlownUp == state.tilesBlownUp;
     }
 
-    /* Do a deep copy of the map, that is, copy each individual tile to a new tile object.  */
-    Tile[][] deepCopyMap() {
-        Tile[][] newMap = new Tile[mapSize][mapSize];
-        Tile currentTile;
+    /* Removes an object from the known items/treasures/trees, because the agent has picked it up, and removes it
+     * from the map */
+    private void pickupObject(int x, int y) {
+        int cell = y * mapSize + x;
 
-        for (int i = 0; i < mapSize; i++) {
-            for (int j = 0; j < mapSize; j++) {
-
-                currentTile = map[i][j];
-                if (currentTile == null) {
-                    newMap[i][j] = null;
-                } else {
-                    newMap[i][j] = new Tile(map[i][j].getType(), map[i][j].getItem(), map[i][j].getX(), map[i][j].getY());
-                }
-
-            }
-        }
-        return newMap;
-    }
-
-    /* Removes an object from the known items/treasures/trees, because the agent has picked it up */
-    private void pickupObject(Tile objectTile) {
-        LinkedList<Tile> knownObjects;
-        Tile tile;
-
-        // Find out which type of object it is
-        knownObjects = chooseObjectList(objectTile);
-
-        // Iterate through the known objects and remove the one we picked up
-        ListIterator<Tile> it = knownObjects.listIterator();
-        while (it.hasNext()) {
-            tile = it.next();
-            if (tile.sameTile(objectTile)) {
-                it.remove();
-                objectTile.setType(' ');
-                objectTile.setItem('0');
-                return;
-            }
+        // Find out which type of object it is, and remove it from the known objects of that type
+        if (getType(x, y) == 't') {
+            knownTrees = withoutObject(knownTrees, cell);
+        } else if (getItem(x, y) == '$') {
+            knownTreasures = withoutObject(knownTreasures, cell);
+        } else {
+            knownItems = withoutObject(knownItems, cell);
         }
-
-        /* If the object was not in the list, there must be a disconnect between the known objects
-         * and the map. Let the user know. */
-        throw new RuntimeException("Couldn't find the object that was supposed to be removed from known objects");
+        setTile(' ', '0', x, y);
     }
 
-    /* Add a new object to the lists of known items/treasures/trees, if it is not already known */
-    private void discoverObject(Tile objectTile) {
-        LinkedList<Tile> knownObjects;
-
-        // Find out which type of object it is
-        knownObjects = chooseObjectList(objectTile);
+    /* Helper function that removes the object at the given cell from a set of known objects */
+    private static ObjectSet withoutObject(ObjectSet knownObjects, int cell) {
+        ObjectSet remaining = knownObjects.without(cell);
 
-        // Check if we already know about this object
-        for (Tile tile : knownObjects) {
-            if (tile.sameTile(objectTile)) {
-                return;
-            }
+        /* If the object was not in the set, there must be a disconnect between the known objects
+         * and the map. Let the user know. */
+        if (remaining == null) {
+            throw new RuntimeException("Couldn't find the object that was supposed to be removed from known objects");
         }
-
-        // If we reach this point the object was not already known, so add it
-        knownObjects.add(objectTile);
+        return remaining;
     }
 
-    /* Helper function to decide which type of tile has been discovered / changed */
-    private LinkedList<Tile> chooseObjectList(Tile tile) {
-        LinkedList<Tile> knownObjects = new LinkedList<>();
+    /* Add a new object to the known items/treasures/trees, if it is not already known */
+    private void discoverObject(Tile objectTile) {
 
-        switch (tile.getItem()) {
+        // Find out which type of object it is. The sets leave out objects they already have
+        if (objectTile.getType() == 't') {
+            knownTrees = knownTrees.with(objectTile);
+            return;
+        }
+        switch (objectTile.getItem()) {
             case 'a':
             case 'k':
             case 'd':
-                knownObjects = knownItems;
+                knownItems = knownItems.with(objectTile);
                 break;
             case '$':
-                knownObjects = knownTreasures;
+                knownTreasures = knownTreasures.with(objectTile);
                 break;
         }
-        if (tile.getType() == 't') {
-            knownObjects = knownTrees;
-        }
+    }
 
-        return knownObjects;
+    final static long POSITION_BITS = 0xFFFFL;   // The bits of the packed key that hold the position
+    final static long DIRECTION_BITS = 3L << 16; // The bits of the packed key that hold the direction
+
+    /* Pack the state into a long, so it can be stored in primitive hash tables. The low 30 bits hold the position,
+     * direction, inventory flags and number of dynamites exactly. The changed tiles can not fit in a long, so the high
+     * 34 bits hold a fingerprint of them instead, taken from their Zobrist hash. Two different states only get the same
+     * key if the fingerprints of their changed tiles collide, which is very unlikely. */
+    long packedKey() {
+        long key = posX & 0xFF;
+        key |= (long) (posY & 0xFF) << 8;
+        key |= (long) direction << 16;
+        key |= (hasAxe ? 1L : 0L) << 18;
+        key |= (hasKey ? 1L : 0L) << 19;
+        key |= (hasRaft ? 1L : 0L) << 20;
+        key |= (hasTreasure ? 1L : 0L) << 21;
+        key |= (hasDynamite ? 1L : 0L) << 22;
+        key |= (long) Math.min(dynamites, 0x7F) << 23;
+        return key | (changedTilesHash & (~0L << 30));
     }
 
-    /* Calculates the hash for an object. Used to store objects in HashSet */
+    /* Calculates the hash for an object. Used to store objects in HashSet. Folds the cached Zobrist hash */
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + direction;
-        result = prime * result + dynamites;
-        result = prime * result + (hasAxe ? 1231 : 1237);
-        result = prime * result + (hasDynamite ? 1231 : 1237);
-        result = prime * result + (hasKey ? 1231 : 1237);
-        result = prime * result + (hasRaft ? 1231 : 1237);
-        result = prime * result + (hasTreasure ? 1231 : 1237);
-        result = prime * result + posX;
-        result = prime * result + posY;
-
-        if (doorsOpened != null) {
-            result = hashTileList(result, prime, doorsOpened);
-        }
-
-        if (treesChopped != null) {
-            result = hashTileList(result, prime, treesChopped);
-        }
-
-        if (tilesBlownUp != null) {
-            result = hashTileList(result, prime, tilesBlownUp);
-        }
-        return result;
-    }
-
-    /* Helper function for hashing a linked list of tiles */
-    private int hashTileList(int result, int prime, LinkedList<Tile> list) {
-        for (Tile tile : list) {
-            result = prime * result + tile.getX();
-            result = prime * result + tile.getY();
-        }
-        return result;
+        return (int) (zobrist ^ (zobrist >>> 32));
     }
 
     /* Override the equals method. Needed for contains() method for e.g. linked lists */
@@ -494,26 +579,4 @@ public class State {
         State other = (State) obj;
         return sameState(other);
     }
-
-    private boolean sameChangedTiles(LinkedList<Tile> list1, LinkedList<Tile> list2) {
-        return list1.size() == list2.size() && list1.containsAll(list2);
-    }
 }
-
-/* Helper class to be able to return two values x and y from a function */
-class Position {
-    private int x, y;
-
-    Position(int x, int y) {
-        this.x = x;
-        this.y = y;
-    }
-
-    int getX() {
-        return this.x;
-    }
-
-    int getY() {
-        return this.y;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,51 @@
+/* The Terrain class packs the type and item of a map cell into a single byte, so the map can be stored as a flat byte
+ * array instead of a matrix of Tile objects. The low three bits hold the type and the next three bits hold the item.
+ * Zero is reserved for cells that have not been seen yet. Types and items are validated the same way as in Tile. */
+final class Terrain {
+    final static byte UNSEEN = 0;
+
+    private final static String TYPES = " ~*t-.";   // Index + 1 is stored in the low bits
+    private final static String ITEMS = "0akd$";    // Index is stored in the high bits
+
+    private Terrain() {
+    }
+
+    /* Pack a type and an item into a byte. Items like 'a' are also accepted as types, and mean land */
+    static byte encode(char type, char item) {
+        return (byte) ((typeIndex(type) + 1) | (itemIndex(item) << 3));
+    }
+
+    /* Get the environment type of a cell, or 0 if the cell is unseen */
+    static char type(byte cell) {
+        return cell == UNSEEN ? 0 : TYPES.charAt((cell & 0x7) - 1);
+    }
+
+    /* Get the item located on a cell, or '0' if there is none */
+    static char item(byte cell) {
+        return ITEMS.charAt((cell >> 3) & 0x7);
+    }
+
+    /* Helper function that validates a type, and finds its index. Mirrors Tile.setType */
+    private static int typeIndex(char type) {
+        type = Character.toLowerCase(type);
+        switch (type) {
+            case 'a':
+            case 'k':
+            case 'd':
+            case '$':
+                return 0;
+            default:
+                int index = TYPES.indexOf(type);
+                if (index < 0) {
+                    throw new InvalidTypeException("Character '" + type + "' is not a valid tile type");
+                }
+                return index;
+        }
+    }
+
+    /* Helper function that finds the index of an item. Invalid items mean no item, like in Tile.setItem */
+    private static int itemIndex(char item) {
+        int index = ITEMS.indexOf(Character.toLowerCase(item));
+        return index < 0 ? 0 : index;
+    }
+}
@@ -102,13 +102,3 @@ public class Tile {
     }
 
 }
-
-class InvalidTypeException extends RuntimeException {
-    InvalidTypeException() {
-        super();
-    }
-
-    InvalidTypeException(String message) {
-        super(message);
-    }
-}
\ No newline at end of file
@@ -0,0 +1,77 @@
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/* The TileSet class is an immutable set of cells of the map (indexed by y * mapSize + x), used for the tiles a state has
+ * changed. The cells are kept in a sorted array. Sets are hash-consed: there is only ever one TileSet with the same
+ * cells, so two sets are the same set exactly when they are the same object, and a state shares its sets with the
+ * state it was expanded from until it changes a tile itself.
+ *
+ * The canonical sets are kept in a table with weak references, so sets no state uses any more are still collected. The
+ * table is synchronized, as searches run on several threads, but it is only used when a tile is changed. */
+class TileSet {
+
+    private final static Map<TileSet, WeakReference<TileSet>> canonical =
+            Collections.synchronizedMap(new WeakHashMap<TileSet, WeakReference<TileSet>>());
+
+    final static TileSet EMPTY = canonical(new TileSet(new int[0]));
+
+    private final int[] cells;
+    private final int hash;
+
+    private TileSet(int[] cells) {
+        this.cells = cells;
+        this.hash = Arrays.hashCode(cells);
+    }
+
+    /* Get the set with the cell added to this one */
+    TileSet with(int cell) {
+        int index = Arrays.binarySearch(cells, cell);
+        if (index >= 0) {
+            return this;
+        }
+
+        int insertAt = -index - 1;
+        int[] newCells = new int[cells.length + 1];
+        System.arraycopy(cells, 0, newCells, 0, insertAt);
+        newCells[insertAt] = cell;
+        System.arraycopy(cells, insertAt, newCells, insertAt + 1, cells.length - insertAt);
+        return canonical(new TileSet(newCells));
+    }
+
+    /* Get the number of cells in the set */
+    int size() {
+        return cells.length;
+    }
+
+    /* Get the cell with the given index, in increasing order */
+    int get(int index) {
+        return cells[index];
+    }
+
+    /* Get the canonical set with the same cells as the given one, which becomes the canonical set if there is none */
+    private static TileSet canonical(TileSet set) {
+        synchronized (canonical) {
+            WeakReference<TileSet> reference = canonical.get(set);
+            TileSet existing = reference == null ? null : reference.get();
+            if (existing != null) {
+                return existing;
+            }
+            canonical.put(set, new WeakReference<>(set));
+            return set;
+        }
+    }
+
+    /* Compare the cells of the sets. Only used to find the canonical set, as canonical sets can be compared with == */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof TileSet && hash == ((TileSet) obj).hash && Arrays.equals(cells, ((TileSet) obj).cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.LinkedList;
+
+/* The Tour class is a tour found by TourPlanner: the points of interest in the order they are visited, ending at the
+ * start, and the cost of the routes between them */
+class Tour {
+    final LinkedList<Tile> points = new LinkedList<>();
+    final int cost;
+
+    Tour(TourStep last) {
+        for (TourStep step = last; step.parent != null; step = step.parent) {
+            points.addFirst(step.tile);
+        }
+        this.cost = last.cost;
+    }
+
+    @Override
+    public String toString() {
+        return points + " (cost " + cost + ")";
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/* The TourPlanner class orders the points of interest the agent has to visit to win the game: the items that give it a
+ * tool it lacks, a treasure, and then the start. It is a small search over the points, where each step goes from one
+ * point to another at the cost cached in a RouteTable, with the tools picked up at the points before it. A tour like
+ * axe, tree, water, treasure, home is then found from a handful of table lookups, without searching the state space.
+ *
+ * The tour is a relaxation of the game: a tool can be used as often as needed once it is held, the raft is never left
+ * behind, and the obstacles removed on one route are removed again on the next. If there is no tour, there is no way
+ * to win with what the agent knows, so the agent doesn't search for the treasure. The cost of a tour is not a lower
+ * bound, as removing an obstacle again costs something. The agent only follows the tour's first leg, to its first
+ * point, and finds the tour again from there. The leg is the route table's path when that only walks over land and
+ * through doors, and is searched for otherwise. */
+class TourPlanner {
+
+    /* Find the cheapest tour from the agent's state that picks up a treasure (unless it already has one) and gets back
+     * to the start, or null if there is none */
+    static Tour plan(State agent, RouteTable routes) {
+        SearchMode mode = routes.getMode();
+
+        // The start, the treasures and the items for tools the agent lacks. Other items are never worth a detour
+        ArrayList<Tile> points = new ArrayList<>();
+        points.add(agent.getTile(State.start, State.start));
+        for (Tile treasure : agent.knownTreasures) {
+            points.add(treasure);
+        }
+        int held = DistanceField.usefulTools(DistanceField.heldTools(agent), mode);
+        for (Tile item : agent.knownItems) {
+            if (DistanceField.usefulTools(held | DistanceField.tool(item.getItem()), mode) != held) {
+                points.add(item);
+            }
+        }
+
+        PriorityQueue<TourStep> open = new PriorityQueue<>();
+        boolean[] closed = new boolean[(points.size() + 1) * (DistanceField.ALL_TOOLS + 1) * 2];
+        open.add(new TourStep(null, null, -1, held, agent.hasTreasure, 0));
+
+        while (!open.isEmpty()) {
+            TourStep current = open.poll();
+            if (closed[current.key()]) {
+                continue;
+            }
+            closed[current.key()] = true;
+
+            if (current.point == 0 && current.treasure) {
+                return new Tour(current);
+            }
+
+            int x = current.point == -1 ? agent.posX : points.get(current.point).getX();
+            int y = current.point == -1 ? agent.posY : points.get(current.point).getY();
+            for (int next = 0; next < points.size(); next++) {
+                Tile tile = points.get(next);
+                boolean treasure = current.treasure || tile.getItem() == '$';
+                int tools = DistanceField.usefulTools(current.tools | DistanceField.tool(tile.getItem()), mode);
+                if (next == current.point || (next == 0 && !treasure)) {
+                    continue;
+                }
+
+                int cost = routes.cost(x, y, tile.getY() * State.mapSize + tile.getX(), current.tools);
+                if (cost != DistanceField.UNREACHABLE) {
+                    TourStep step = new TourStep(current, tile, next, tools, treasure, current.cost + cost);
+                    if (!closed[step.key()]) {
+                        open.add(step);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
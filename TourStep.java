@@ -0,0 +1,29 @@
+/* The TourStep class is a state of the search in TourPlanner: the point the tour is at (-1 for the agent's position),
+ * the tools it holds and whether it has a treasure */
+class TourStep implements Comparable<TourStep> {
+    final TourStep parent;
+    final Tile tile;
+    final int point;
+    final int tools;
+    final boolean treasure;
+    final int cost;
+
+    TourStep(TourStep parent, Tile tile, int point, int tools, boolean treasure, int cost) {
+        this.parent = parent;
+        this.tile = tile;
+        this.point = point;
+        this.tools = tools;
+        this.treasure = treasure;
+        this.cost = cost;
+    }
+
+    /* Number the step, so two steps with the same number are the same state of the search */
+    int key() {
+        return ((point + 1) * (DistanceField.ALL_TOOLS + 1) + tools) * 2 + (treasure ? 1 : 0);
+    }
+
+    /* Sort by cost, for the priority queue */
+    public int compareTo(TourStep step) {
+        return Integer.compare(cost, step.cost);
+    }
+}
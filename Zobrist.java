@@ -0,0 +1,34 @@
+import java.util.Random;
+
+/* The Zobrist class holds the random values used to hash states. A state's hash is the XOR of the values of each of
+ * its parts (position, direction, inventory and changed tiles), so when an action changes one part, the new hash is
+ * found by XOR-ing out the old value and XOR-ing in the new one, without looking at the rest of the state. */
+final class Zobrist {
+    private final static Random random = new Random(0x5EEDL); // Fixed seed, so hashes are the same between runs
+
+    final static long[] position = randomValues(State.mapSize * State.mapSize);
+    final static long[] direction = randomValues(4);
+    final static long[] dynamites = randomValues(128);
+    final static long hasDynamite = random.nextLong();
+    final static long hasAxe = random.nextLong();
+    final static long hasKey = random.nextLong();
+    final static long hasRaft = random.nextLong();
+    final static long hasTreasure = random.nextLong();
+
+    // One value per cell for each of the three ways to remove a tile
+    final static long[] doorOpened = randomValues(State.mapSize * State.mapSize);
+    final static long[] treeChopped = randomValues(State.mapSize * State.mapSize);
+    final static long[] tileBlownUp = randomValues(State.mapSize * State.mapSize);
+
+    private Zobrist() {
+    }
+
+    /* Helper function that creates an array of random values */
+    private static long[] randomValues(int count) {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextLong();
+        }
+        return values;
+    }
+}